@@ -0,0 +1,83 @@
+#!/usr/bin/env python3
+"""Compare two JMH JSON result files and flag regressions.
+
+Usage:
+    scripts/compare-benchmarks.py BASELINE.json CURRENT.json [--threshold 0.10]
+
+A benchmark regresses when its score moves in the bad direction by more than
+--threshold (relative) and by more than the two runs' combined error, so noise
+inside the confidence intervals is not reported. Throughput is better when higher;
+average/sample/single-shot time and allocation (gc.alloc.rate.norm) when lower.
+
+Exits with status 1 when any regression is found, 0 otherwise.
+"""
+
+import argparse
+import json
+import sys
+
+ALLOCATION_METRIC = "gc.alloc.rate.norm"
+
+
+def load(path):
+    with open(path, encoding="utf-8") as f:
+        results = {}
+        for run in json.load(f):
+            params = ",".join(f"{k}={v}" for k, v in sorted((run.get("params") or {}).items()))
+            name = ".".join(run["benchmark"].split(".")[-2:])
+            key = f"{name}[{params}]" if params else name
+            results[(key, run["mode"])] = run["primaryMetric"]
+            secondary = (run.get("secondaryMetrics") or {}).get(ALLOCATION_METRIC)
+            if secondary:
+                results[(key, ALLOCATION_METRIC)] = secondary
+    return results
+
+
+def higher_is_better(metric):
+    return metric == "thrpt"
+
+
+def error(metric):
+    value = metric.get("scoreError")
+    return 0.0 if value in (None, "NaN") or value != value else float(value)
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument("baseline")
+    parser.add_argument("current")
+    parser.add_argument("--threshold", type=float, default=0.10,
+                        help="relative change that counts as a regression (default 0.10)")
+    args = parser.parse_args()
+
+    baseline = load(args.baseline)
+    current = load(args.current)
+
+    regressions = 0
+    print(f"{'benchmark':60} {'metric':20} {'baseline':>14} {'current':>14} {'change':>8}")
+    for key in sorted(baseline.keys() & current.keys()):
+        name, metric = key
+        before, after = baseline[key], current[key]
+        old, new = float(before["score"]), float(after["score"])
+        if old == 0:
+            continue
+        change = (new - old) / old
+        worse = -change if higher_is_better(metric) else change
+        noise = error(before) + error(after)
+        regressed = worse > args.threshold and abs(new - old) > noise
+        regressions += regressed
+        flag = "  REGRESSION" if regressed else ""
+        unit = after.get("scoreUnit", "")
+        print(f"{name:60} {metric:20} {old:>14.3f} {new:>14.3f} {change:>+8.1%}{flag}  {unit}")
+
+    for key in sorted(baseline.keys() - current.keys()):
+        print(f"{key[0]:60} {key[1]:20} missing from current run")
+
+    if regressions:
+        print(f"\n{regressions} regression(s) over {args.threshold:.0%}", file=sys.stderr)
+        return 1
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main())
@@ -0,0 +1,84 @@
+package com.example.library.benchmark;
+
+import com.example.library.availability.AvailabilityIndex;
+import com.example.library.availability.AvailabilityIndexLoader;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "How many copies of this ISBN are free?" and "next page of free copies" answered by
+ * {@link AvailabilityIndex} versus the equivalent {@code borrower_id IS NULL} query run
+ * directly through JDBC (the cheapest database path). The catalog has ten copies per ISBN
+ * and every fourth copy is on loan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class AvailabilityBenchmark {
+
+    static final int PAGE_SIZE = 50;
+
+    @Param({"200000"})
+    public int books;
+
+    private ConfigurableApplicationContext context;
+    private AvailabilityIndex index;
+    private JdbcTemplate jdbc;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start();
+        index = context.getBean(AvailabilityIndex.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+
+        jdbc.update("insert into borrower (name, email) values ('Reader', 'reader@example.com')");
+        Long borrowerId = jdbc.queryForObject("select id from borrower", Long.class);
+        jdbc.update("insert into book (id, isbn, title, author, version, borrower_id) "
+                + "select x, 'ISBN-' || (x / 10), 'Title', 'Author', 0, case when mod(x, 4) = 0 then ? end "
+                + "from system_range(1, ?)", borrowerId, books);
+        context.getBean(AvailabilityIndexLoader.class).load();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    private String randomIsbn() {
+        return "ISBN-" + ThreadLocalRandom.current().nextInt(books / 10);
+    }
+
+    private long randomCursor() {
+        return ThreadLocalRandom.current().nextInt(books - PAGE_SIZE * 2);
+    }
+
+    @Benchmark
+    public Object countIndex() {
+        return index.count(randomIsbn());
+    }
+
+    @Benchmark
+    public Object countDatabase() {
+        return jdbc.queryForObject("select count(*) from book where isbn = ? and borrower_id is null",
+                Integer.class, randomIsbn());
+    }
+
+    @Benchmark
+    public Object pageIndex() {
+        return index.availableIds(null, randomCursor(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Long> pageDatabase() {
+        return jdbc.queryForList("select id from book where borrower_id is null and id > ? order by id limit ?",
+                Long.class, randomCursor(), PAGE_SIZE);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.library.benchmark;
+
+import com.example.library.LibraryApiApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Starts the application without a web server against a private in-memory H2 database,
+ * with SQL logging off so it doesn't dominate the measurements.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.profiles.active=dev",
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN"));
+        args.addAll(List.of(extraArgs));
+
+        SpringApplication app = new SpringApplication(LibraryApiApplication.class);
+        app.setWebApplicationType(WebApplicationType.NONE);
+        return app.run(args.toArray(String[]::new));
+    }
+}
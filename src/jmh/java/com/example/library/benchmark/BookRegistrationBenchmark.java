@@ -0,0 +1,75 @@
+package com.example.library.benchmark;
+
+import com.example.library.entity.Book;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.BookService;
+import com.example.library.service.BulkBookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows/sec of registering books one at a time through {@link BookService#create}
+ * versus {@link BulkBookService#createAll}. Every invocation registers {@link #ROWS}
+ * books spread over 100 ISBNs, so both paths also pay for the consistency check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class BookRegistrationBenchmark {
+
+    static final int ROWS = 1000;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private BulkBookService bulkBookService;
+    private BookRepository bookRepository;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start();
+        bookService = context.getBean(BookService.class);
+        bulkBookService = context.getBean(BulkBookService.class);
+        bookRepository = context.getBean(BookRepository.class);
+    }
+
+    // Start every iteration from an empty table so neither path pays for the other's rows.
+    @Setup(Level.Iteration)
+    public void truncate() {
+        bookRepository.deleteAllInBatch();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    private static List<Book> books() {
+        List<Book> books = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            int title = i % 100;
+            books.add(new Book("ISBN-" + title, "Title " + title, "Author " + title));
+        }
+        return books;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void singleItem() {
+        for (Book book : books()) {
+            bookService.create(book);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Object bulk() {
+        return bulkBookService.createAll(books());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.library.benchmark;
+
+import com.example.library.search.BookSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link BookSearchIndex} over a synthetic catalog (1M copies by default,
+ * about ten copies per title). Titles use three words from a 20k-word vocabulary and
+ * authors come from 5k names, so postings sizes resemble a real catalog.
+ * Run in SampleTime mode to read p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class BookSearchBenchmark {
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ne", "ru", "sa", "to", "vi", "ber", "dan", "gor", "hel", "jor", "kin", "lam",
+            "mor", "nes", "pol", "quin", "ros", "sel", "tan", "ul", "ver", "wes", "xan", "yor", "zel"};
+
+    @Param({"1000000"})
+    public int books;
+
+    private BookSearchIndex index;
+    private String[] vocabulary;
+
+    @Setup(Level.Trial)
+    public void build() {
+        vocabulary = words(20_000, 1);
+        String[] authors = words(5_000, 2);
+
+        index = new BookSearchIndex();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 1; i <= books; i++) {
+            int titleNo = i / 10;
+            SplittableRandom title = new SplittableRandom(titleNo);
+            index.add((long) i, "978-" + (1_000_000 + titleNo),
+                    vocabulary[title.nextInt(vocabulary.length)] + " " + vocabulary[title.nextInt(vocabulary.length)]
+                            + " " + vocabulary[title.nextInt(vocabulary.length)],
+                    authors[title.nextInt(authors.length)] + " " + authors[title.nextInt(authors.length)],
+                    random.nextInt(4) != 0);
+        }
+    }
+
+    private static String[] words(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 2 + random.nextInt(3); s > 0; s--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    @State(Scope.Thread)
+    public static class Query {
+        SplittableRandom random = new SplittableRandom();
+    }
+
+    // Two random full words, e.g. a title fragment typed by a patron.
+    @Benchmark
+    public Object twoWords(Query query) {
+        return index.search(vocabulary[query.random.nextInt(vocabulary.length)] + " "
+                + vocabulary[query.random.nextInt(vocabulary.length)], 0, 20);
+    }
+
+    // One full word plus the first three letters of another (search-as-you-type).
+    @Benchmark
+    public Object wordAndPrefix(Query query) {
+        String next = vocabulary[query.random.nextInt(vocabulary.length)];
+        return index.search(vocabulary[query.random.nextInt(vocabulary.length)] + " "
+                + next.substring(0, Math.min(3, next.length())), 0, 20);
+    }
+
+    // The first three letters of a word on their own, as the first keystrokes of a query.
+    @Benchmark
+    public Object prefix(Query query) {
+        String word = vocabulary[query.random.nextInt(vocabulary.length)];
+        return index.search(word.substring(0, Math.min(3, word.length())), 0, 20);
+    }
+
+    @Benchmark
+    public Object isbn(Query query) {
+        return index.search("978-" + (1_000_000 + query.random.nextInt(books / 10)), 0, 20);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.library.benchmark;
+
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.exception.BookAlreadyBorrowedException;
+import com.example.library.exception.ConflictException;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.BorrowerRepository;
+import com.example.library.service.BorrowerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many threads racing to borrow (and immediately return) a handful of hot copies,
+ * with borrow/return done as one conditional UPDATE ({@code atomicUpdate=true}) or as
+ * load-check-save with {@code @Version} ({@code atomicUpdate=false}).
+ * The aux counters report how attempts ended; {@code conflict} is the 409-style
+ * {@link ConflictException} rate that the atomic path should drive to zero.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class LoanContentionBenchmark {
+
+    static final int HOT_BOOKS = 4;
+
+    @Param({"true", "false"})
+    public boolean atomicUpdate;
+
+    private ConfigurableApplicationContext context;
+    private BorrowerService borrowerService;
+    private List<Long> bookIds;
+    private final AtomicLong borrowerSequence = new AtomicLong();
+    private BorrowerRepository borrowerRepository;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start("--library.loans.atomic-update=" + atomicUpdate);
+        borrowerService = context.getBean(BorrowerService.class);
+        borrowerRepository = context.getBean(BorrowerRepository.class);
+
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        bookIds = java.util.stream.IntStream.range(0, HOT_BOOKS)
+                .mapToObj(i -> bookRepository.save(new Book("HOT-" + i, "Hot " + i, "Author")).getId())
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+        public long borrowed;
+        public long alreadyBorrowed;
+        public long conflict;
+
+        Long borrowerId;
+
+        @Setup(Level.Trial)
+        public void register(LoanContentionBenchmark benchmark) {
+            long n = benchmark.borrowerSequence.incrementAndGet();
+            borrowerId = benchmark.borrowerRepository
+                    .save(new Borrower("Patron " + n, "patron" + n + "@bench.local")).getId();
+        }
+    }
+
+    @Benchmark
+    public void borrowHotBook(Outcomes outcomes) {
+        Long bookId = bookIds.get(ThreadLocalRandom.current().nextInt(HOT_BOOKS));
+        try {
+            borrowerService.borrow(outcomes.borrowerId, bookId);
+            outcomes.borrowed++;
+            borrowerService.returnBook(outcomes.borrowerId, bookId);
+        } catch (BookAlreadyBorrowedException ex) {
+            outcomes.alreadyBorrowed++;
+        } catch (ConflictException ex) {
+            outcomes.conflict++;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.library.benchmark;
+
+import com.example.library.dto.BookWithBorrowerRow;
+import com.example.library.dto.BorrowerBookRow;
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.mapper.Mapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link Mapper} conversions, from entities (the old read path) and from
+ * projection rows (the current one). {@link #books} is the number of books on the
+ * borrower being converted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class MapperBenchmark {
+
+    @Param({"1", "20"})
+    public int books;
+
+    private Book borrowedBook;
+    private BookWithBorrowerRow borrowedRow;
+    private Borrower borrower;
+    private List<BorrowerBookRow> borrowerRows;
+
+    @Setup
+    public void build() {
+        borrower = new Borrower("Reader", "reader@example.com");
+        borrower.setId(1L);
+        borrowerRows = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            Book book = new Book("978-0-13-468599-" + i, "Effective Java " + i, "Joshua Bloch");
+            book.setId((long) i);
+            book.setBorrower(borrower);
+            borrower.getBooks().add(book);
+            borrowerRows.add(new BorrowerBookRow(1L, "Reader", "reader@example.com",
+                    book.getId(), book.getIsbn(), book.getTitle(), book.getAuthor()));
+        }
+        borrowedBook = borrower.getBooks().get(0);
+        borrowedRow = new BookWithBorrowerRow(borrowedBook.getId(), borrowedBook.getIsbn(), borrowedBook.getTitle(),
+                borrowedBook.getAuthor(), 1L, "Reader", "reader@example.com");
+    }
+
+    @Benchmark
+    public Object bookWithBorrowerFromEntity() {
+        return Mapper.toBookWithBorrowerResponse(borrowedBook);
+    }
+
+    @Benchmark
+    public Object bookWithBorrowerFromRow() {
+        return Mapper.toBookWithBorrowerResponse(borrowedRow);
+    }
+
+    @Benchmark
+    public Object borrowerWithBooksFromEntity() {
+        return Mapper.toBorrowerWithBooksResponse(borrower);
+    }
+
+    @Benchmark
+    public Object borrowerWithBooksFromRows() {
+        return Mapper.toBorrowerWithBooksResponses(borrowerRows);
+    }
+}
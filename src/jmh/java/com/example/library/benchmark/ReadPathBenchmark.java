@@ -0,0 +1,96 @@
+package com.example.library.benchmark;
+
+import com.example.library.service.BookService;
+import com.example.library.service.BorrowerService;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Throughput of the read endpoints' service calls. Each call runs with an EntityManager
+ * bound to the thread, as open-in-view does for a web request. Run with {@code -prof gc}
+ * and read {@code gc.alloc.rate.norm} for bytes allocated per request.
+ * <p>
+ * The catalog has {@link #BOOKS} books; {@link #BORROWERS} borrowers hold five books each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class ReadPathBenchmark {
+
+    static final int BOOKS = 1000;
+    static final int BORROWERS = 100;
+
+    private ConfigurableApplicationContext context;
+    private EntityManagerFactory entityManagerFactory;
+    private BookService bookService;
+    private BorrowerService borrowerService;
+    private List<Long> borrowerIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start();
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        bookService = context.getBean(BookService.class);
+        borrowerService = context.getBean(BorrowerService.class);
+
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("insert into borrower (name, email) select 'Reader ' || x, 'reader' || x || '@example.com' "
+                + "from system_range(1, ?)", BORROWERS);
+        borrowerIds = jdbc.queryForList("select id from borrower order by id", Long.class);
+        long firstBorrower = borrowerIds.get(0);
+        jdbc.update("insert into book (id, isbn, title, author, version, borrower_id) "
+                + "select x, 'ISBN-' || (x / 10), 'Title ' || (x / 10), 'Author ' || (x / 10), 0, "
+                + "case when x <= ? then ? + (x - 1) / 5 end from system_range(1, ?)",
+                BORROWERS * 5, firstBorrower, BOOKS);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    private <T> T inRequest(Supplier<T> call) {
+        EntityManagerHolder holder = new EntityManagerHolder(entityManagerFactory.createEntityManager());
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, holder);
+        try {
+            return call.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            holder.getEntityManager().close();
+        }
+    }
+
+    @Benchmark
+    public Object allBooks() {
+        return inRequest(bookService::getAllBooks);
+    }
+
+    @Benchmark
+    public Object booksPage() {
+        long after = ThreadLocalRandom.current().nextInt(BOOKS - 50);
+        return inRequest(() -> bookService.getBooksPage(after, 50));
+    }
+
+    @Benchmark
+    public Object allBorrowers() {
+        return inRequest(borrowerService::getAllBorrowers);
+    }
+
+    @Benchmark
+    public Object borrowerById() {
+        Long id = borrowerIds.get(ThreadLocalRandom.current().nextInt(borrowerIds.size()));
+        return inRequest(() -> borrowerService.findById(id));
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.library.benchmark;
+
+import com.example.library.metrics.SqlStatementCounter;
+import com.example.library.service.BorrowerService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The borrow/return path with and without the Hibernate second-level cache, over the same
+ * catalog as {@link ServiceBenchmark}. Besides time per borrow+return, the
+ * {@code statements} and {@code calls} counters give the SQL round trips per call
+ * ({@code statements / calls}): 7 without the cache, falling towards 5 as the
+ * {@code books / 10} borrowers get cached (a short run mostly sees first lookups).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class SecondLevelCacheBenchmark {
+
+    @Param({"100000"})
+    public int books;
+
+    @Param({"false", "true"})
+    public boolean l2cache;
+
+    private ConfigurableApplicationContext context;
+    private BorrowerService borrowerService;
+    private SqlStatementCounter statementCounter;
+    private List<Long> borrowerIds;
+    private List<Long> freeBookIds;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RoundTrips {
+        public long statements;
+        public long calls;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            statements = 0;
+            calls = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkApplication.start("--library.l2cache.enabled=" + l2cache);
+        borrowerService = context.getBean(BorrowerService.class);
+        statementCounter = context.getBean(SqlStatementCounter.class);
+
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("insert into borrower (name, email) select 'Reader ' || x, 'reader' || x || '@example.com' "
+                + "from system_range(1, ?)", books / 10);
+        borrowerIds = jdbc.queryForList("select id from borrower order by id", Long.class);
+        jdbc.update("insert into book (id, isbn, title, author, version) "
+                + "select x, 'ISBN-' || (x / 10), 'Title ' || (x / 10), 'Author ' || (x / 10), 0 "
+                + "from system_range(1, ?)", books);
+        freeBookIds = jdbc.queryForList("select id from book order by id", Long.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object borrowAndReturn(RoundTrips roundTrips) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Long borrowerId = borrowerIds.get(random.nextInt(borrowerIds.size()));
+        Long bookId = freeBookIds.get(random.nextInt(freeBookIds.size()));
+        statementCounter.reset();
+        borrowerService.borrow(borrowerId, bookId);
+        Object returned = borrowerService.returnBook(borrowerId, bookId);
+        roundTrips.statements += statementCounter.count();
+        roundTrips.calls++;
+        return returned;
+    }
+}
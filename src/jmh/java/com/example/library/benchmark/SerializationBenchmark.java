@@ -0,0 +1,79 @@
+package com.example.library.benchmark;
+
+import com.example.library.dto.BookRequest;
+import com.example.library.dto.BookResponse;
+import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.dto.BorrowerResponse;
+import com.example.library.dto.BorrowerWithBooksResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of the {@code dto} records with the same defaults Spring MVC
+ * uses. Payload sizes follow the endpoints: a default page of 50 books, one borrower
+ * with five books, one borrow response and one registration request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class SerializationBenchmark {
+
+    private ObjectWriter writer;
+    private ObjectReader bookRequestReader;
+    private List<BookWithBorrowerResponse> bookPage;
+    private BorrowerWithBooksResponse borrower;
+    private BorrowerResponse borrowResponse;
+    private byte[] bookRequest;
+
+    @Setup
+    public void build() throws JsonProcessingException {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writer();
+        bookRequestReader = objectMapper.readerFor(BookRequest.class);
+
+        BorrowerResponse reader = new BorrowerResponse(7L, "Reader", "reader@example.com", null, null);
+        bookPage = new ArrayList<>();
+        List<BookResponse> borrowed = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            bookPage.add(new BookWithBorrowerResponse(id, "978-0-13-468599-" + id, "Effective Java", "Joshua Bloch",
+                    id % 4 == 0 ? reader : null));
+            if (borrowed.size() < 5) {
+                borrowed.add(new BookResponse(id, "978-0-13-468599-" + id, "Effective Java", "Joshua Bloch"));
+            }
+        }
+        borrower = new BorrowerWithBooksResponse(7L, "Reader", "reader@example.com", borrowed);
+        borrowResponse = new BorrowerResponse(7L, "Reader", "reader@example.com", "Book Borrowed Successfully", borrowed.get(0));
+        bookRequest = objectMapper.writeValueAsBytes(new BookRequest("978-0-13-468599-1", "Effective Java", "Joshua Bloch"));
+    }
+
+    @Benchmark
+    public byte[] writeBookPage() throws JsonProcessingException {
+        return writer.writeValueAsBytes(bookPage);
+    }
+
+    @Benchmark
+    public byte[] writeBorrowerWithBooks() throws JsonProcessingException {
+        return writer.writeValueAsBytes(borrower);
+    }
+
+    @Benchmark
+    public byte[] writeBorrowResponse() throws JsonProcessingException {
+        return writer.writeValueAsBytes(borrowResponse);
+    }
+
+    @Benchmark
+    public Object readBookRequest() throws Exception {
+        return bookRequestReader.readValue(bookRequest);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.library.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The requests of the Postman collection, driven against a running application:
+ * register books and borrowers, borrow, return, list books, list borrowers and get one borrower.
+ * <p>
+ * Reads are split 50% borrower by id, 25% all books and 25% all borrowers. Writes are
+ * split 40% borrow (a random copy, so some hit already borrowed copies), 40% return
+ * (of a copy this run borrowed, or a borrow if none is out), 15% register a copy and
+ * 5% register a borrower. Registered ids feed the later operations.
+ */
+final class LibraryScenario {
+
+    static final String REGISTER_BOOK = "POST /api/books";
+    static final String LIST_BOOKS = "GET /api/books";
+    static final String REGISTER_BORROWER = "POST /api/borrowers";
+    static final String BORROW = "POST /api/borrowers/{id}/borrow/{bookId}";
+    static final String RETURN = "POST /api/borrowers/{id}/return/{bookId}";
+    static final String LIST_BORROWERS = "GET /api/borrowers";
+    static final String GET_BORROWER = "GET /api/borrowers/{id}";
+
+    private record Loan(long borrowerId, long bookId) {}
+
+    /**
+     * Ids registered so far; appends are rare next to random reads.
+     */
+    private static final class IdPool {
+        private volatile long[] ids = new long[0];
+
+        synchronized void add(long id) {
+            long[] grown = Arrays.copyOf(ids, ids.length + 1);
+            grown[ids.length] = id;
+            ids = grown;
+        }
+
+        long random() {
+            long[] snapshot = ids;
+            return snapshot[ThreadLocalRandom.current().nextInt(snapshot.length)];
+        }
+
+        int size() {
+            return ids.length;
+        }
+    }
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final URI baseUrl;
+    private final LoadTestOptions options;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong sequence = new AtomicLong();
+    private final IdPool books = new IdPool();
+    private final IdPool borrowers = new IdPool();
+    private final Queue<Loan> loans = new ConcurrentLinkedQueue<>();
+
+    LibraryScenario(URI baseUrl, LoadTestOptions options) {
+        this.baseUrl = baseUrl;
+        this.options = options;
+    }
+
+    int books() {
+        return books.size();
+    }
+
+    int borrowers() {
+        return borrowers.size();
+    }
+
+    /**
+     * Registers the i-th seed copy; copies of the same ISBN share title and author.
+     */
+    void seedBook(int i, LoadReport report) {
+        long isbn = i / options.copiesPerIsbn();
+        registerBook(report, "LT-" + runId + "-" + isbn, "Load test title " + isbn, "Author " + isbn % 500, System.nanoTime());
+    }
+
+    void seedBorrower(LoadReport report) {
+        registerBorrower(report, System.nanoTime());
+    }
+
+    /**
+     * Runs one operation from the read/write mix.
+     *
+     * @param intendedStart when the operation was due; latency is measured from here so
+     *                      queueing behind a slow server counts (open loop)
+     */
+    void next(LoadReport report, long intendedStart) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < options.readRatio()) {
+            double pick = random.nextDouble();
+            if (pick < 0.5) {
+                send(report, GET_BORROWER, get("/api/borrowers/" + borrowers.random()), intendedStart);
+            } else if (pick < 0.75) {
+                send(report, LIST_BOOKS, get("/api/books"), intendedStart);
+            } else {
+                send(report, LIST_BORROWERS, get("/api/borrowers"), intendedStart);
+            }
+            return;
+        }
+
+        double pick = random.nextDouble();
+        if (pick < 0.4) {
+            borrow(report, intendedStart);
+        } else if (pick < 0.8) {
+            Loan loan = loans.poll();
+            if (loan == null) {
+                borrow(report, intendedStart);
+            } else {
+                send(report, RETURN, post("/api/borrowers/" + loan.borrowerId() + "/return/" + loan.bookId(), null), intendedStart);
+            }
+        } else if (pick < 0.95) {
+            long isbn = random.nextInt(Math.max(1, options.books() / options.copiesPerIsbn()));
+            registerBook(report, "LT-" + runId + "-" + isbn, "Load test title " + isbn, "Author " + isbn % 500, intendedStart);
+        } else {
+            registerBorrower(report, intendedStart);
+        }
+    }
+
+    private void borrow(LoadReport report, long intendedStart) {
+        long borrowerId = borrowers.random();
+        long bookId = books.random();
+        HttpResponse<String> response = send(report, BORROW,
+                post("/api/borrowers/" + borrowerId + "/borrow/" + bookId, null), intendedStart);
+        if (response != null && response.statusCode() == 200) {
+            loans.add(new Loan(borrowerId, bookId));
+        }
+    }
+
+    private void registerBook(LoadReport report, String isbn, String title, String author, long intendedStart) {
+        Map<String, String> body = Map.of("isbn", isbn, "title", title, "author", author);
+        HttpResponse<String> response = send(report, REGISTER_BOOK, post("/api/books", body), intendedStart);
+        if (response != null && response.statusCode() == 201) {
+            books.add(id(response));
+        }
+    }
+
+    private void registerBorrower(LoadReport report, long intendedStart) {
+        long n = sequence.incrementAndGet();
+        Map<String, String> body = Map.of("name", "Load Test " + n, "email", "lt-" + runId + "-" + n + "@example.com");
+        HttpResponse<String> response = send(report, REGISTER_BORROWER, post("/api/borrowers", body), intendedStart);
+        if (response != null && response.statusCode() / 100 == 2) {
+            borrowers.add(id(response));
+        }
+    }
+
+    private HttpResponse<String> send(LoadReport report, String endpoint, HttpRequest request, long intendedStart) {
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            report.record(endpoint, response.statusCode(), System.nanoTime() - intendedStart);
+            return response;
+        } catch (IOException e) {
+            report.record(endpoint, -1, System.nanoTime() - intendedStart);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path)).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(baseUrl.resolve(path));
+        if (body == null) {
+            return request.POST(HttpRequest.BodyPublishers.noBody()).build();
+        }
+        try {
+            return request.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long id(HttpResponse<String> response) {
+        try {
+            return objectMapper.readTree(response.body()).path("id").asLong();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unexpected response body: " + response.body(), e);
+        }
+    }
+}
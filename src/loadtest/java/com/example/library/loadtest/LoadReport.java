@@ -0,0 +1,132 @@
+package com.example.library.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and status counts per endpoint for one phase of the run.
+ * Latencies are recorded in microseconds with 3 significant digits.
+ */
+final class LoadReport {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    static final class EndpointStats {
+        final Histogram latency = new ConcurrentHistogram(3);
+        final LongAdder conflict = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+
+        void record(int status, long nanos) {
+            latency.recordValue(Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)));
+            if (status == 409) {
+                conflict.increment();
+            } else if (status >= 400 && status < 500) {
+                rejected.increment();
+            } else if (status < 200 || status >= 300) {
+                failed.increment();
+            }
+        }
+    }
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentSkipListMap<>();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    /**
+     * @param status HTTP status, or -1 when no response was received
+     */
+    void record(String endpoint, int status, long nanos) {
+        endpoints.computeIfAbsent(endpoint, e -> new EndpointStats()).record(status, nanos);
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    double elapsedSeconds() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1e9;
+    }
+
+    void print(PrintStream out) {
+        double seconds = elapsedSeconds();
+        out.printf("%-42s %9s %9s %8s %8s %8s %8s %8s %7s %7s %7s%n", "endpoint (latency ms)", "requests", "req/s",
+                "p50", "p90", "p99", "p99.9", "max", "409 %", "4xx %", "err %");
+
+        Histogram total = new Histogram(3);
+        long totalConflicts = 0;
+        for (Map.Entry<String, EndpointStats> entry : endpoints.entrySet()) {
+            EndpointStats stats = entry.getValue();
+            total.add(stats.latency);
+            totalConflicts += stats.conflict.sum();
+            printRow(out, entry.getKey(), stats.latency, stats.conflict.sum(), stats.rejected.sum(), stats.failed.sum(), seconds);
+        }
+        long rejected = endpoints.values().stream().mapToLong(s -> s.rejected.sum()).sum();
+        long failed = endpoints.values().stream().mapToLong(s -> s.failed.sum()).sum();
+        printRow(out, "TOTAL", total, totalConflicts, rejected, failed, seconds);
+    }
+
+    /**
+     * Throughput and latency over all endpoints, for comparing runs.
+     */
+    record Total(String name, long requests, double perSecond, double p50, double p99, double p999, double errorPercent) {}
+
+    Total total(String name) {
+        Histogram total = new Histogram(3);
+        long failed = 0;
+        for (EndpointStats stats : endpoints.values()) {
+            total.add(stats.latency);
+            failed += stats.failed.sum();
+        }
+        long count = total.getTotalCount();
+        return new Total(name, count, count / elapsedSeconds(), millis(total, 50), millis(total, 99),
+                millis(total, 99.9), percent(failed, count));
+    }
+
+    static void printComparison(PrintStream out, List<Total> totals) {
+        out.printf("%-10s %9s %9s %8s %8s %8s %7s%n", "mode", "requests", "req/s", "p50", "p99", "p99.9", "err %");
+        for (Total total : totals) {
+            out.printf("%-10s %9d %9.1f %8.2f %8.2f %8.2f %7.2f%n", total.name(), total.requests(), total.perSecond(),
+                    total.p50(), total.p99(), total.p999(), total.errorPercent());
+        }
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram latency, long conflicts, long rejected,
+                                 long failed, double seconds) {
+        long count = latency.getTotalCount();
+        out.printf("%-42s %9d %9.1f %8.2f %8.2f %8.2f %8.2f %8.2f %7.2f %7.2f %7.2f%n", name, count, count / seconds,
+                millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9),
+                latency.getMaxValue() / MICROS_PER_MILLI,
+                percent(conflicts, count), percent(rejected, count), percent(failed, count));
+    }
+
+    // Full percentile distributions, one file per endpoint, loadable with the HdrHistogram plotter.
+    void writeHistograms(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Map.Entry<String, EndpointStats> entry : endpoints.entrySet()) {
+            String file = entry.getKey().replaceAll("[^A-Za-z0-9]+", "_").replaceAll("^_|_$", "") + ".hgrm";
+            try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(file)))) {
+                entry.getValue().latency.outputPercentileDistribution(out, MICROS_PER_MILLI);
+            }
+        }
+    }
+
+    private static double millis(Histogram latency, double percentile) {
+        return latency.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    private static double percent(long part, long count) {
+        return count == 0 ? 0 : 100.0 * part / count;
+    }
+}
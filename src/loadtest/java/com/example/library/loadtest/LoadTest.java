@@ -0,0 +1,177 @@
+package com.example.library.loadtest;
+
+import com.example.library.LibraryApiApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * HTTP load test for the book and borrower endpoints.
+ * <p>
+ * Seeds books and borrowers through the API, runs {@link LibraryScenario}'s read/write mix
+ * for the warmup and then the measured duration, and prints throughput, latency percentiles
+ * and the 409/4xx/error rates per endpoint.
+ * <p>
+ * Closed loop (default): {@code --threads} clients send back to back, so throughput is what the
+ * server sustains at that concurrency. Open loop ({@code --rate=N}): requests are due every
+ * 1/N seconds whatever the server does and latency counts from when a request was due, so
+ * queueing shows up in the percentiles instead of silently lowering the send rate.
+ * <p>
+ * Without {@code --base-url} the application is started in-process with the dev profile on a
+ * random port, sharing the CPU with the load generator; point it at a separately started
+ * instance for numbers that size a pod. {@code --execution-mode=both} runs the whole test
+ * against a fresh in-process app per server execution mode and prints them side by side.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        List<LoadReport.Total> totals = new ArrayList<>();
+        for (String mode : options.executionModes()) {
+            ConfigurableApplicationContext app = options.baseUrl() == null ? startApplication(mode) : null;
+            try {
+                URI baseUrl = app == null ? options.baseUrl()
+                        : URI.create("http://localhost:" + app.getEnvironment().getProperty("local.server.port"));
+                if (app != null) {
+                    System.out.printf("%nServer execution mode: %s%n", mode);
+                }
+                Path histogramDir = options.histogramDir() == null || options.executionModes().size() == 1
+                        ? options.histogramDir() : options.histogramDir().resolve(mode);
+                totals.add(run(options, new LibraryScenario(baseUrl, options), baseUrl, histogramDir).total(mode));
+            } finally {
+                if (app != null) {
+                    app.close();
+                }
+            }
+        }
+        if (totals.size() > 1) {
+            System.out.println();
+            LoadReport.printComparison(System.out, totals);
+        }
+    }
+
+    private static LoadReport run(LoadTestOptions options, LibraryScenario scenario, URI baseUrl, Path histogramDir)
+            throws Exception {
+        System.out.printf("Seeding %d books and %d borrowers at %s%n", options.books(), options.borrowers(), baseUrl);
+        LoadReport seeding = new LoadReport();
+        AtomicInteger seeded = new AtomicInteger();
+        closedLoop(options.threads(), () -> {
+            int i = seeded.getAndIncrement();
+            if (i < options.books()) {
+                scenario.seedBook(i, seeding);
+            } else if (i < options.books() + options.borrowers()) {
+                scenario.seedBorrower(seeding);
+            }
+            return i < options.books() + options.borrowers();
+        });
+        if (scenario.books() == 0 || scenario.borrowers() == 0) {
+            seeding.print(System.out);
+            throw new IllegalStateException("Seeding failed, see the status rates above");
+        }
+
+        System.out.printf("%s: %d threads%s, read ratio %.2f, warmup %s, duration %s%n",
+                options.openLoop() ? "Open loop" : "Closed loop", options.threads(),
+                options.openLoop() ? ", " + options.rate() + " req/s" : "", options.readRatio(),
+                options.warmup(), options.duration());
+
+        AtomicReference<LoadReport> current = new AtomicReference<>(new LoadReport());
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        Thread phases = new Thread(() -> {
+            LockSupport.parkNanos(measureFrom - System.nanoTime());
+            current.set(new LoadReport());
+        }, "loadtest-phases");
+        phases.setDaemon(true);
+        phases.start();
+
+        int dropped = 0;
+        if (options.openLoop()) {
+            dropped = openLoop(options, scenario, current, start, end);
+        } else {
+            closedLoop(options.threads(), () -> {
+                scenario.next(current.get(), System.nanoTime());
+                return System.nanoTime() < end;
+            });
+        }
+        phases.join();
+
+        LoadReport report = current.get();
+        report.finish();
+        System.out.println();
+        report.print(System.out);
+        if (dropped > 0) {
+            System.out.printf("%d due requests were dropped after the run; the server could not keep up with %s req/s%n",
+                    dropped, options.rate());
+        }
+        if (histogramDir != null) {
+            report.writeHistograms(histogramDir);
+            System.out.println("Latency distributions written to " + histogramDir);
+        }
+        return report;
+    }
+
+    private interface Step {
+        // Returns false once this client should stop.
+        boolean run() throws Exception;
+    }
+
+    private static void closedLoop(int threads, Step step) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                try {
+                    while (step.run()) {
+                        // next request
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.DAYS);
+    }
+
+    // Issues requests on a fixed schedule; returns how many were still queued when the drain timed out.
+    private static int openLoop(LoadTestOptions options, LibraryScenario scenario, AtomicReference<LoadReport> current,
+                                long start, long end) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(options.threads());
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / options.rate());
+        for (long due = start; due < end; due += interval) {
+            LockSupport.parkNanos(due - System.nanoTime());
+            long intendedStart = due;
+            pool.execute(() -> scenario.next(current.get(), intendedStart));
+        }
+        pool.shutdown();
+        if (pool.awaitTermination(Math.max(30, options.duration().toSeconds()), TimeUnit.SECONDS)) {
+            return 0;
+        }
+        List<Runnable> queued = pool.shutdownNow();
+        return queued.size();
+    }
+
+    private static ConfigurableApplicationContext startApplication(String executionMode) {
+        return SpringApplication.run(LibraryApiApplication.class,
+                "--spring.profiles.active=dev",
+                "--library.server.execution-mode=" + executionMode,
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN");
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.library.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Load test settings, parsed from {@code --name=value} arguments.
+ *
+ * @param baseUrl        application to load; {@code null} starts one in-process with the dev profile
+ * @param threads        concurrent requests (closed loop) or worker threads serving the arrivals (open loop)
+ * @param rate           arrivals per second; 0 runs closed loop, each thread sending back to back
+ * @param warmup         time run before measuring
+ * @param duration       measured time
+ * @param readRatio      share of operations that are reads (0..1)
+ * @param books          copies registered before the run
+ * @param copiesPerIsbn  copies registered per ISBN
+ * @param borrowers      borrowers registered before the run
+ * @param histogramDir   directory for per-endpoint .hgrm percentile files, or {@code null}
+ * @param executionModes {@code library.server.execution-mode} values to run the in-process app with,
+ *                       one full run each
+ */
+record LoadTestOptions(URI baseUrl, int threads, double rate, Duration warmup, Duration duration,
+                       double readRatio, int books, int copiesPerIsbn, int borrowers, Path histogramDir,
+                       List<String> executionModes) {
+
+    private static final Set<String> NAMES = Set.of("base-url", "threads", "rate", "warmup", "duration",
+            "read-ratio", "books", "copies-per-isbn", "borrowers", "histogram-dir", "execution-mode");
+    private static final Set<String> EXECUTION_MODES = Set.of("platform", "virtual");
+
+    LoadTestOptions {
+        if (threads < 1 || rate < 0 || readRatio < 0 || readRatio > 1
+                || books < 1 || copiesPerIsbn < 1 || borrowers < 1) {
+            throw new IllegalArgumentException("threads, books, copies-per-isbn and borrowers must be >= 1, "
+                    + "rate >= 0 and read-ratio between 0 and 1");
+        }
+        if (!EXECUTION_MODES.containsAll(executionModes) || (baseUrl != null && executionModes.size() > 1)) {
+            throw new IllegalArgumentException("execution-mode must be platform, virtual or both; "
+                    + "with base-url, start the application in the wanted mode instead");
+        }
+    }
+
+    boolean openLoop() {
+        return rate > 0;
+    }
+
+    static LoadTestOptions parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+            if (name == null || !NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown option '" + arg + "', expected --name=value with name one of " + NAMES);
+            }
+            values.put(name, arg.substring(eq + 1));
+        }
+
+        String baseUrl = values.get("base-url");
+        String histogramDir = values.get("histogram-dir");
+        String executionMode = values.getOrDefault("execution-mode", "platform");
+        return new LoadTestOptions(
+                baseUrl == null ? null : URI.create(baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl),
+                Integer.parseInt(values.getOrDefault("threads", "16")),
+                Double.parseDouble(values.getOrDefault("rate", "0")),
+                DurationStyle.detectAndParse(values.getOrDefault("warmup", "10s")),
+                DurationStyle.detectAndParse(values.getOrDefault("duration", "30s")),
+                Double.parseDouble(values.getOrDefault("read-ratio", "0.8")),
+                Integer.parseInt(values.getOrDefault("books", "1000")),
+                Integer.parseInt(values.getOrDefault("copies-per-isbn", "3")),
+                Integer.parseInt(values.getOrDefault("borrowers", "100")),
+                histogramDir == null ? null : Path.of(histogramDir),
+                executionMode.equals("both") ? List.of("platform", "virtual") : List.of(executionMode));
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.library.availability;
+
+import com.example.library.dto.AvailabilityResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Which copies are free right now, as two bitsets indexed by book id (known / available)
+ * plus the sorted copy ids of every ISBN. That is two bits per id and four bytes per copy,
+ * so availability questions are answered without loading a single entity.
+ * <p>
+ * Book ids come from a sequence and stay dense; they must fit in an {@code int}.
+ */
+@Component
+public class AvailabilityIndex {
+
+    /**
+     * Ids of the copies of one ISBN, kept sorted.
+     */
+    private static final class CopyIds {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            int at = size == 0 || ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            int insert = -(at + 1);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insert, ids, insert + 1, size - insert);
+            ids[insert] = id;
+            size++;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet known = new BitSet();
+    private final BitSet available = new BitSet();
+    private final Map<String, CopyIds> copiesByIsbn = new HashMap<>();
+    private int size;
+
+    public void add(Long id, String isbn, boolean free) {
+        int index = Math.toIntExact(id);
+        lock.writeLock().lock();
+        try {
+            if (known.get(index)) {
+                return;
+            }
+            known.set(index);
+            available.set(index, free);
+            copiesByIsbn.computeIfAbsent(isbn, i -> new CopyIds()).add(index);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setAvailable(Long id, boolean free) {
+        int index = Math.toIntExact(id);
+        lock.writeLock().lock();
+        try {
+            if (known.get(index)) {
+                available.set(index, free);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            known.clear();
+            available.clear();
+            copiesByIsbn.clear();
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public AvailabilityResponse count(String isbn) {
+        lock.readLock().lock();
+        try {
+            CopyIds copies = copiesByIsbn.get(isbn);
+            if (copies == null) {
+                return new AvailabilityResponse(isbn, 0, 0);
+            }
+            int free = 0;
+            for (int i = 0; i < copies.size; i++) {
+                if (available.get(copies.ids[i])) {
+                    free++;
+                }
+            }
+            return new AvailabilityResponse(isbn, copies.size, free);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} ids of available copies greater than {@code after}, ascending;
+     * only copies of {@code isbn} when it is given.
+     */
+    public List<Long> availableIds(String isbn, long after, int limit) {
+        if (after >= Integer.MAX_VALUE || limit < 1) {
+            return List.of();
+        }
+        int from = (int) Math.max(0, after + 1);
+        List<Long> ids = new ArrayList<>(Math.min(limit, 1024));
+
+        lock.readLock().lock();
+        try {
+            if (isbn == null) {
+                for (int id = available.nextSetBit(from); id >= 0 && ids.size() < limit; id = available.nextSetBit(id + 1)) {
+                    ids.add((long) id);
+                }
+                return ids;
+            }
+
+            CopyIds copies = copiesByIsbn.get(isbn);
+            if (copies == null) {
+                return ids;
+            }
+            int at = Arrays.binarySearch(copies.ids, 0, copies.size, from);
+            for (int i = at >= 0 ? at : -(at + 1); i < copies.size && ids.size() < limit; i++) {
+                if (available.get(copies.ids[i])) {
+                    ids.add((long) copies.ids[i]);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
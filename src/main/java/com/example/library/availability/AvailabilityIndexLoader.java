@@ -0,0 +1,74 @@
+package com.example.library.availability;
+
+import com.example.library.dto.BookRow;
+import com.example.library.event.BookBorrowedEvent;
+import com.example.library.event.BookRegisteredEvent;
+import com.example.library.event.BookReturnedEvent;
+import com.example.library.repository.BookRepository;
+import com.example.library.routing.ReadRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+/**
+ * Fills {@link AvailabilityIndex} from the database and applies registrations, borrows and
+ * returns to it after they commit.
+ * <p>
+ * The load runs before the web server takes requests. No loan can commit while it reads,
+ * so a borrow is never dropped for a book not yet in the index, and {@code /available}
+ * never answers from a half-built index.
+ */
+@Component
+public class AvailabilityIndexLoader implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityIndexLoader.class);
+
+    private final AvailabilityIndex index;
+    private final BookRepository bookRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public AvailabilityIndexLoader(AvailabilityIndex index, BookRepository bookRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.index = index;
+        this.bookRepository = bookRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+    }
+
+    public void load() {
+        long started = System.nanoTime();
+        // Later changes arrive as events after commit, so the starting point must not lag behind: read the primary.
+        ReadRouting.onPrimary(() -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<BookRow> rows = bookRepository.streamAllRows()) {
+                rows.forEach(row -> index.add(row.id(), row.isbn(), row.borrowerId() == null));
+            }
+        }));
+        logger.info("Availability index built with {} books in {} ms", index.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookRegisteredEvent event) {
+        index.add(event.bookId(), event.isbn(), true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookBorrowedEvent event) {
+        index.setAvailable(event.bookId(), false);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookReturnedEvent event) {
+        index.setAvailable(event.bookId(), true);
+    }
+}
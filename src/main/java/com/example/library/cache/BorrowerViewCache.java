@@ -0,0 +1,51 @@
+package com.example.library.cache;
+
+import com.example.library.dto.BorrowerWithBooksResponse;
+import com.example.library.routing.ReadRouting;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of borrower detail views keyed by borrower id. Entries are dropped by
+ * the caller after every committed borrow/return of that borrower; expire-after-write
+ * (default 30s, 0 turns it off) bounds how long a write made on another node can go unseen.
+ * Hit/miss/eviction counts are published as the {@code cache.*} meters with tag
+ * {@code cache=borrowerViews}.
+ */
+@Component
+public class BorrowerViewCache {
+
+    static final String NAME = "borrowerViews";
+
+    private final Cache<Long, BorrowerWithBooksResponse> cache;
+
+    public BorrowerViewCache(MeterRegistry meterRegistry,
+                             @Value("${library.borrowers.view-cache.max-size:10000}") long maxSize,
+                             @Value("${library.borrowers.view-cache.expire-after-write:30s}") Duration expireAfterWrite) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats();
+        if (!expireAfterWrite.isZero()) {
+            builder.expireAfterWrite(expireAfterWrite);
+        }
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, builder.build(), NAME);
+    }
+
+    // Loads at most once per id at a time; an invalidate issued meanwhile waits for the load and then drops it.
+    // Loads read the primary: a replica still behind the write that invalidated the entry would cache the old view.
+    public BorrowerWithBooksResponse get(Long borrowerId, Function<Long, BorrowerWithBooksResponse> loader) {
+        return cache.get(borrowerId, id -> ReadRouting.onPrimary(() -> loader.apply(id)));
+    }
+
+    // Must be called after the write has committed, so no later load can see the old rows.
+    public void invalidate(Long borrowerId) {
+        cache.invalidate(borrowerId);
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.library.cache;
+
+import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.event.BookBorrowedEvent;
+import com.example.library.event.BookRegisteredEvent;
+import com.example.library.event.BookReturnedEvent;
+import com.example.library.feed.BookChangeFeed;
+import com.example.library.routing.ReadRouting;
+import com.example.library.service.BookService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The full book list ({@code GET /api/books}) kept as ready-to-send JSON bytes, plain and
+ * gzipped, so unchanged catalog reads skip the query, the mapping and Jackson.
+ * <p>
+ * Registrations, borrows and returns mark the snapshot stale after they commit; a single
+ * background thread rebuilds it once writes have been quiet for {@code debounce}, so a burst
+ * (e.g. a bulk registration) costs one rebuild. A snapshot is handed out only while it is
+ * no older than {@code max-staleness} and no write it misses is older than that; otherwise
+ * callers fall back to a live query, and a rebuild is requested. A failed rebuild is retried
+ * after {@code max-staleness}, doubling up to a minute while it keeps failing. The ETag and
+ * change feed position read before each build go with its bytes.
+ * <p>
+ * Rebuild time and snapshot size are published as {@code library.catalog.snapshot.rebuild}
+ * and {@code library.catalog.snapshot.size} (tagged {@code encoding=identity|gzip}).
+ */
+@Component
+public class CatalogSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshot.class);
+
+    static final String REBUILD_METRIC = "library.catalog.snapshot.rebuild";
+    static final String SIZE_METRIC = "library.catalog.snapshot.size";
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 60_000;
+
+    public record Snapshot(byte[] json, byte[] gzip, String etag, String changeEventId, long builtAtMillis) {
+
+        /**
+         * The strong ETag of the gzipped bytes: a different representation of the same version.
+         */
+        public String gzipETag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+    }
+
+    private final BookService bookService;
+    private final ViewVersions viewVersions;
+    private final BookChangeFeed changeFeed;
+    private final ObjectWriter writer;
+    private final ScheduledExecutorService executor;
+    private final Clock clock;
+    private final long debounceMillis;
+    private final long maxStalenessMillis;
+    private final Timer rebuildTimer;
+
+    private volatile Snapshot current;
+    private volatile long staleSinceMillis = -1;
+    // Guarded by this.
+    private long changes;
+    private long lastChangeMillis;
+    private boolean scheduled;
+    private int failures;
+
+    @Autowired
+    public CatalogSnapshot(BookService bookService, ViewVersions viewVersions, BookChangeFeed changeFeed,
+                           ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                           @Value("${library.books.snapshot.enabled:false}") boolean enabled,
+                           @Value("${library.books.snapshot.debounce:200ms}") Duration debounce,
+                           @Value("${library.books.snapshot.max-staleness:5s}") Duration maxStaleness) {
+        this(bookService, viewVersions, changeFeed, objectMapper, meterRegistry,
+                enabled ? Executors.newSingleThreadScheduledExecutor(CatalogSnapshot::newThread) : null,
+                Clock.systemUTC(), debounce, maxStaleness);
+    }
+
+    CatalogSnapshot(BookService bookService, ViewVersions viewVersions, BookChangeFeed changeFeed,
+                    ObjectMapper objectMapper, MeterRegistry meterRegistry, ScheduledExecutorService executor, Clock clock,
+                    Duration debounce, Duration maxStaleness) {
+        if (debounce.compareTo(maxStaleness) >= 0) {
+            throw new IllegalArgumentException("library.books.snapshot.debounce must be shorter than max-staleness");
+        }
+        this.bookService = bookService;
+        this.viewVersions = viewVersions;
+        this.changeFeed = changeFeed;
+        this.writer = objectMapper.writerFor(new TypeReference<List<BookWithBorrowerResponse>>() {});
+        this.executor = executor;
+        this.clock = clock;
+        this.debounceMillis = debounce.toMillis();
+        this.maxStalenessMillis = maxStaleness.toMillis();
+        this.rebuildTimer = Timer.builder(REBUILD_METRIC)
+                .description("Time to load, serialize and gzip the catalog snapshot")
+                .register(meterRegistry);
+        registerSize(meterRegistry, "identity", s -> s.json().length);
+        registerSize(meterRegistry, "gzip", s -> s.gzip().length);
+    }
+
+    /**
+     * The snapshot to serve, or null when snapshots are disabled, none has been built yet,
+     * or the current one is too stale (a rebuild is then requested if none is pending).
+     */
+    public Snapshot current() {
+        Snapshot snapshot = current;
+        long now = clock.millis();
+        long staleSince = staleSinceMillis;
+        if (snapshot == null
+                || staleSince >= 0 && now - staleSince > maxStalenessMillis
+                || now - snapshot.builtAtMillis() > maxStalenessMillis) {
+            // Normally already pending; this catches a lost schedule. A failed rebuild's retry stays pending.
+            schedule(0);
+            return null;
+        }
+        return snapshot;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        schedule(0);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookRegisteredEvent event) {
+        changed();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookBorrowedEvent event) {
+        changed();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookReturnedEvent event) {
+        changed();
+    }
+
+    // Must be called after the write has committed, so the rebuild it triggers can see it.
+    void changed() {
+        if (executor == null) {
+            return;
+        }
+        synchronized (this) {
+            long now = clock.millis();
+            changes++;
+            lastChangeMillis = now;
+            if (staleSinceMillis < 0) {
+                staleSinceMillis = now;
+            }
+        }
+        schedule(debounceMillis);
+    }
+
+    private synchronized void schedule(long delayMillis) {
+        if (executor == null || scheduled) {
+            return;
+        }
+        scheduled = true;
+        executor.schedule(this::rebuildWhenQuiet, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void rebuildWhenQuiet() {
+        long generation;
+        synchronized (this) {
+            long now = clock.millis();
+            long quietFor = now - lastChangeMillis;
+            // Let a burst of writes settle, but never wait past the point the snapshot becomes unusable.
+            if (staleSinceMillis >= 0 && quietFor < debounceMillis
+                    && now - staleSinceMillis + debounceMillis < maxStalenessMillis) {
+                executor.schedule(this::rebuildWhenQuiet, debounceMillis - quietFor, TimeUnit.MILLISECONDS);
+                return;
+            }
+            scheduled = false;
+            generation = changes;
+        }
+        try {
+            rebuildTimer.record(this::rebuild);
+        } catch (RuntimeException e) {
+            long retryDelay;
+            synchronized (this) {
+                failures++;
+                retryDelay = Math.min(maxStalenessMillis << Math.min(failures - 1, 16), MAX_RETRY_DELAY_MILLIS);
+            }
+            logger.warn("Catalog snapshot rebuild failed; serving live queries, retrying in {} ms", retryDelay, e);
+            schedule(retryDelay);
+            return;
+        }
+        synchronized (this) {
+            failures = 0;
+            // Writes that landed during the build keep the snapshot marked stale; their rebuild is already queued.
+            if (changes == generation) {
+                staleSinceMillis = -1;
+            }
+        }
+    }
+
+    private void rebuild() {
+        long builtAt = clock.millis();
+        String etag = viewVersions.catalogETag(); // read before the data, never newer than it
+        String changeEventId = changeFeed.currentEventId(); // likewise: resuming from it repeats changes, never skips them
+        // From the primary: the writes that marked the snapshot stale may not have reached a replica yet.
+        List<BookWithBorrowerResponse> books = ReadRouting.onPrimary(bookService::getAllBooks);
+        try {
+            byte[] json = writer.writeValueAsBytes(books);
+            current = new Snapshot(json, gzip(json), etag, changeEventId, builtAt);
+            logger.info("Catalog snapshot rebuilt: {} books, {} bytes ({} gzipped)",
+                    books.size(), json.length, current.gzip().length);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize the catalog snapshot", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    private void registerSize(MeterRegistry meterRegistry, String encoding, ToDoubleFunction<Snapshot> size) {
+        Gauge.builder(SIZE_METRIC, this, self -> {
+                    Snapshot snapshot = self.current;
+                    return snapshot == null ? 0 : size.applyAsDouble(snapshot);
+                })
+                .description("Size of the catalog snapshot served for GET /api/books")
+                .baseUnit("bytes")
+                .tag("encoding", encoding)
+                .register(meterRegistry);
+    }
+
+    private static Thread newThread(Runnable task) {
+        Thread thread = new Thread(task, "catalog-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
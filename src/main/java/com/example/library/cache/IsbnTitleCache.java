@@ -0,0 +1,47 @@
+package com.example.library.cache;
+
+import com.example.library.dto.IsbnTitleAuthor;
+import com.example.library.repository.BookRepository;
+import com.example.library.routing.ReadRouting;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * ISBN -> (title, author) lookup used to validate new copies without loading the
+ * existing ones. Backed by a single indexed row read and a bounded in-memory cache;
+ * entries never go stale because a registered ISBN's title/author cannot change.
+ */
+@Component
+public class IsbnTitleCache {
+
+    private final BookRepository bookRepository;
+    private final Cache<String, IsbnTitleAuthor> cache;
+
+    public IsbnTitleCache(BookRepository bookRepository,
+                          @Value("${library.books.isbn-cache.max-size:100000}") long maxSize) {
+        this.bookRepository = bookRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    public Optional<IsbnTitleAuthor> find(String isbn) {
+        IsbnTitleAuthor cached = cache.getIfPresent(isbn);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        // Decides a registration, so it must see copies a replica may not have yet.
+        Optional<IsbnTitleAuthor> stored = ReadRouting.onPrimary(() -> bookRepository.findFirstByIsbn(isbn));
+        stored.ifPresent(entry -> cache.put(isbn, entry));
+        return stored;
+    }
+
+    // Called once a copy is saved, so the next copy of the same ISBN is validated from memory.
+    public void register(IsbnTitleAuthor entry) {
+        cache.asMap().putIfAbsent(entry.isbn(), entry);
+    }
+}
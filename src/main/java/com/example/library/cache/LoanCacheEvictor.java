@@ -0,0 +1,47 @@
+package com.example.library.cache;
+
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.event.BookBorrowedEvent;
+import com.example.library.event.BookReturnedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Drops the second-level cache entries a borrow or return made stale, after it commits.
+ * <p>
+ * The conditional UPDATEs in {@code BookRepository} declare a query space that is no
+ * entity's table, so Hibernate leaves the {@code books} and {@code borrowerBooks} regions
+ * alone instead of clearing them on every loan. What did change is exactly the book
+ * and the borrower's {@code books} collection, and only those are evicted here.
+ */
+@Component
+@ConditionalOnProperty(prefix = "library.l2cache", name = "enabled", havingValue = "true")
+public class LoanCacheEvictor {
+
+    private static final String BORROWER_BOOKS_ROLE = Borrower.class.getName() + ".books";
+
+    private final org.hibernate.Cache cache;
+
+    public LoanCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookBorrowedEvent event) {
+        evict(event.bookId(), event.borrowerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookReturnedEvent event) {
+        evict(event.bookId(), event.borrowerId());
+    }
+
+    private void evict(Long bookId, Long borrowerId) {
+        cache.evictEntityData(Book.class, bookId);
+        cache.evictCollectionData(BORROWER_BOOKS_ROLE, borrowerId);
+    }
+}
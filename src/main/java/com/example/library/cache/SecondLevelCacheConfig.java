@@ -0,0 +1,114 @@
+package com.example.library.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Opt-in Hibernate second-level cache ({@code library.l2cache.enabled=true}) for the
+ * {@code Borrower} and {@code Book} entities and the {@code Borrower.books} collection,
+ * held in an in-process JCache (Caffeine) manager.
+ * <p>
+ * Every region is created here with its own size bound and expire-after-write; a region
+ * Hibernate asks for that is not configured fails startup instead of getting an unbounded
+ * default. All regions are READ_WRITE: updates through Hibernate (the load-check-save
+ * borrow path) soft-lock the entry until commit and are version-checked against
+ * {@code Book.version}; after the conditional UPDATEs {@link LoanCacheEvictor} evicts only
+ * the book and that borrower's books collection. Expiry bounds how long writes made on
+ * other nodes can go unseen.
+ * <p>
+ * Regions are published as the {@code cache.*} meters (tag {@code cache=<region>}) plus
+ * {@code library.l2cache.hit.ratio}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "library.l2cache", name = "enabled", havingValue = "true")
+public class SecondLevelCacheConfig {
+
+    public static final String BORROWER_REGION = "borrowers";
+    public static final String BOOK_REGION = "books";
+    public static final String BORROWER_BOOKS_REGION = "borrowerBooks";
+
+    static final String HIT_RATIO_METRIC = "library.l2cache.hit.ratio";
+
+    private static final List<String> REGIONS = List.of(BORROWER_REGION, BOOK_REGION, BORROWER_BOOKS_REGION);
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(
+            @Value("${library.l2cache.borrowers.max-size:10000}") long borrowersMaxSize,
+            @Value("${library.l2cache.borrowers.expire-after-write:10m}") Duration borrowersExpiry,
+            @Value("${library.l2cache.books.max-size:10000}") long booksMaxSize,
+            @Value("${library.l2cache.books.expire-after-write:60s}") Duration booksExpiry,
+            @Value("${library.l2cache.borrower-books.max-size:10000}") long borrowerBooksMaxSize,
+            @Value("${library.l2cache.borrower-books.expire-after-write:60s}") Duration borrowerBooksExpiry) {
+        // A URI of its own, so application contexts sharing the JVM (tests, benchmarks) never share regions.
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("library-l2-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(BORROWER_REGION, region(borrowersMaxSize, borrowersExpiry));
+        cacheManager.createCache(BOOK_REGION, region(booksMaxSize, booksExpiry));
+        cacheManager.createCache(BORROWER_BOOKS_REGION, region(borrowerBooksMaxSize, borrowerBooksExpiry));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            // Book.borrower owns the association; without this Borrower.books entries would outlive a borrow.
+            properties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+        };
+    }
+
+    @Bean
+    public MeterBinder secondLevelCacheMetrics(CacheManager secondLevelCacheManager) {
+        return registry -> REGIONS.forEach(region -> {
+            JCacheMetrics.monitor(registry, secondLevelCacheManager.getCache(region));
+            Gauge.builder(HIT_RATIO_METRIC, registry, r -> hitRatio(r, region))
+                    .description("Share of second-level cache lookups answered without the database, since startup")
+                    .tag("cache", region)
+                    .register(registry);
+        });
+    }
+
+    private static double hitRatio(MeterRegistry registry, String region) {
+        double hits = gets(registry, region, "hit");
+        double total = hits + gets(registry, region, "miss");
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private static double gets(MeterRegistry registry, String region, String result) {
+        FunctionCounter counter = registry.find("cache.gets").tag("cache", region).tag("result", result).functionCounter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maxSize, Duration expireAfterWrite) {
+        CaffeineConfiguration<Object, Object> config = new CaffeineConfiguration<>();
+        config.setMaximumSize(OptionalLong.of(maxSize));
+        if (!expireAfterWrite.isZero()) {
+            config.setExpireAfterWrite(OptionalLong.of(expireAfterWrite.toNanos()));
+        }
+        config.setStatisticsEnabled(true);
+        return config;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.library.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of the catalog (book and borrower lists) and of each borrower's detail view,
+ * used as strong ETags so unchanged views are revalidated with a 304 without a query.
+ * <p>
+ * Every write bumps the catalog version; borrows, returns and registrations also move the
+ * borrower's own version. Bumps happen after the write commits (and after any cached view
+ * was dropped), and callers read the version before loading the view, so an ETag never
+ * names data newer than the body it is sent with.
+ * <p>
+ * Versions live in this node's memory: the ETag carries a per-process epoch so a restart
+ * never reuses one, and rolls over every {@code max-staleness} so writes made on other
+ * nodes are picked up within that time (0 keeps ETags until the next local write).
+ */
+@Component
+public class ViewVersions {
+
+    private final String epoch = Long.toString(UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE, 36);
+    private final AtomicLong catalog = new AtomicLong();
+    private final Map<Long, Long> borrowers = new ConcurrentHashMap<>();
+    private final long maxStalenessMillis;
+    private final Clock clock;
+
+    @Autowired
+    public ViewVersions(@Value("${library.etags.max-staleness:30s}") Duration maxStaleness) {
+        this(maxStaleness, Clock.systemUTC());
+    }
+
+    ViewVersions(Duration maxStaleness, Clock clock) {
+        this.maxStalenessMillis = maxStaleness.toMillis();
+        this.clock = clock;
+    }
+
+    public String catalogETag() {
+        return etag("c" + catalog.get());
+    }
+
+    public String borrowerETag(Long borrowerId) {
+        return etag("b" + borrowers.getOrDefault(borrowerId, 0L));
+    }
+
+    // A book or borrower was added or a loan changed: the lists are stale.
+    public void catalogChanged() {
+        afterCommit(catalog::incrementAndGet);
+    }
+
+    // The borrower's own view changed too; this also changes the catalog.
+    public void borrowerChanged(Long borrowerId) {
+        afterCommit(() -> borrowers.put(borrowerId, catalog.incrementAndGet()));
+    }
+
+    private static void afterCommit(Runnable bump) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump.run();
+                }
+            });
+        } else {
+            bump.run();
+        }
+    }
+
+    private String etag(String version) {
+        long window = maxStalenessMillis > 0 ? clock.millis() / maxStalenessMillis : 0;
+        return "\"" + epoch + "-" + version + "-" + window + "\"";
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.library.concurrency;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds how many requests hold a database connection at once. With a virtual thread per
+ * request there is no worker pool to cap concurrency, so this is where excess load waits:
+ * up to {@code acquireTimeout} in FIFO order, after which the caller fails fast instead of
+ * queueing inside the connection pool.
+ * <p>
+ * Published as {@code library.datasource.permits.in-use}, {@code .waiting} and
+ * {@code .rejected}.
+ */
+public class ConnectionLimiter implements MeterBinder {
+
+    private final int limit;
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+    private final LongAdder rejected = new LongAdder();
+
+    public ConnectionLimiter(int limit, Duration acquireTimeout) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("library.server.virtual.db-permits must be at least 1");
+        }
+        this.limit = limit;
+        this.permits = new Semaphore(limit, true);
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    void acquire() throws SQLException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection permit", ex);
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new SQLTransientConnectionException("No database connection permit within " + acquireTimeout
+                    + " (all " + limit + " in use)");
+        }
+    }
+
+    void release() {
+        permits.release();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("library.datasource.permits.in-use", permits, p -> limit - p.availablePermits())
+                .description("Database connection permits currently held")
+                .register(registry);
+        Gauge.builder("library.datasource.permits.waiting", permits, Semaphore::getQueueLength)
+                .description("Requests waiting for a database connection permit")
+                .register(registry);
+        FunctionCounter.builder("library.datasource.permits.rejected", rejected, LongAdder::sum)
+                .description("Requests that gave up waiting for a database connection permit")
+                .register(registry);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.library.concurrency;
+
+import com.example.library.exception.ConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Runs borrow/return work for a book in its own transaction while holding one of a
+ * fixed set of locks chosen by book id, so requests for the same copy queue up inside
+ * this node instead of racing on the database. Optimistic-lock failures that still get
+ * through (writes from other nodes) are retried a bounded number of times with
+ * exponential backoff and full jitter, outside the lock.
+ */
+@Component
+public class StripedLoanExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StripedLoanExecutor.class);
+
+    private final ReentrantLock[] stripes;
+    private final Counter[] retries;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration lockTimeout;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public StripedLoanExecutor(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                               @Value("${library.loans.lock.stripes:64}") int stripeCount,
+                               @Value("${library.loans.lock.timeout:2s}") Duration lockTimeout,
+                               @Value("${library.loans.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${library.loans.retry.initial-backoff:10ms}") Duration initialBackoff,
+                               @Value("${library.loans.retry.max-backoff:200ms}") Duration maxBackoff) {
+        if (stripeCount < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("library.loans.lock.stripes and library.loans.retry.max-attempts must be at least 1");
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lockTimeout = lockTimeout;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+
+        this.stripes = new ReentrantLock[stripeCount];
+        this.retries = new Counter[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            String stripe = Integer.toString(i);
+            stripes[i] = new ReentrantLock();
+            Gauge.builder("library.loans.lock.queue", stripes[i], ReentrantLock::getQueueLength)
+                    .description("Threads waiting for a book lock stripe")
+                    .tag("stripe", stripe)
+                    .register(meterRegistry);
+            retries[i] = Counter.builder("library.loans.retries")
+                    .description("Borrow/return attempts retried after an optimistic-lock conflict")
+                    .tag("stripe", stripe)
+                    .register(meterRegistry);
+        }
+    }
+
+    public <T> T execute(Long bookId, Supplier<T> work) {
+        return execute(new int[] {stripeFor(bookId)}, "book ID=" + bookId, work);
+    }
+
+    /**
+     * Runs work touching several books in one transaction, holding every stripe they map to.
+     * Stripes are taken in ascending order, so overlapping batches cannot deadlock each other
+     * or single-book calls.
+     */
+    public <T> T executeAll(Collection<Long> bookIds, Supplier<T> work) {
+        int[] held = bookIds.stream().mapToInt(this::stripeFor).distinct().sorted().toArray();
+        return execute(held, bookIds.size() + " books", work);
+    }
+
+    private <T> T execute(int[] held, String target, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            int locked = lockAll(held);
+            if (locked < held.length) {
+                unlockAll(held, locked);
+                throw new ConflictException("Too many concurrent requests for this book, try again");
+            }
+            try {
+                return transactionTemplate.execute(status -> work.get());
+            } catch (ConflictException | OptimisticLockingFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    throw ex instanceof ConflictException conflict
+                            ? conflict
+                            : new ConflictException("Book was updated by someone else, try again");
+                }
+                for (int stripe : held) {
+                    retries[stripe].increment();
+                }
+                logger.debug("Conflict on {} (attempt {}/{}), retrying", target, attempt, maxAttempts);
+            } finally {
+                unlockAll(held, locked);
+            }
+            backoff(attempt);
+        }
+    }
+
+    // Returns how many of the stripes were locked, stopping at the first that timed out.
+    private int lockAll(int[] held) {
+        for (int i = 0; i < held.length; i++) {
+            if (!tryLock(stripes[held[i]])) {
+                return i;
+            }
+        }
+        return held.length;
+    }
+
+    private void unlockAll(int[] held, int locked) {
+        for (int i = locked - 1; i >= 0; i--) {
+            stripes[held[i]].unlock();
+        }
+    }
+
+    int stripeFor(Long bookId) {
+        return Math.floorMod(Long.hashCode(bookId), stripes.length);
+    }
+
+    private boolean tryLock(ReentrantLock lock) {
+        try {
+            return lock.tryLock(lockTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while retrying, try again");
+        }
+    }
+}
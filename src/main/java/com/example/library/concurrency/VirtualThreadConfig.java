@@ -0,0 +1,55 @@
+package com.example.library.concurrency;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual-thread execution mode ({@code library.server.execution-mode=virtual}):
+ * Tomcat runs every request, and so every service and repository call, on its own virtual
+ * thread instead of a bounded worker pool. Concurrency is then limited where the scarce
+ * resource is: a {@link ConnectionLimiter} in front of the connection pool, sized like the
+ * pool by default.
+ * <p>
+ * The default ({@code platform}) keeps Tomcat's thread pool, sized by
+ * {@code server.tomcat.threads.max}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "library.server", name = "execution-mode", havingValue = "virtual")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadRequestExecutor() {
+        return protocolHandler -> protocolHandler.setExecutor(
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-vt-", 0).factory()));
+    }
+
+    @Bean
+    public ConnectionLimiter connectionLimiter(
+            @Value("${library.server.virtual.db-permits:${spring.datasource.hikari.maximum-pool-size:10}}") int permits,
+            @Value("${library.server.virtual.db-acquire-timeout:2s}") Duration acquireTimeout) {
+        return new ConnectionLimiter(permits, acquireTimeout);
+    }
+
+    // Static and lazy so wrapping the DataSource doesn't pull the limiter into early bean creation.
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourceWrapper(ObjectProvider<ConnectionLimiter> limiter) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return new ConnectionLimitingDataSource(dataSource, limiter.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -1,31 +1,81 @@
 package com.example.library.controller;
 
+import com.example.library.cache.CatalogSnapshot;
+import com.example.library.cache.ViewVersions;
+import com.example.library.dto.AvailabilityResponse;
 import com.example.library.dto.BookRequest;
 import com.example.library.dto.BookResponse;
+import com.example.library.dto.BookSearchResponse;
 import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.dto.BulkBookRequest;
+import com.example.library.dto.BulkBookResponse;
+import com.example.library.dto.CursorPage;
+import com.example.library.dto.ResultPage;
 import com.example.library.entity.Book;
+import com.example.library.feed.BookChangeFeed;
+import com.example.library.routing.ReadRouting;
 import com.example.library.service.BookService;
+import com.example.library.service.BulkBookService;
+import com.example.library.service.CatalogExportService;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * REST Controller for handling book-related operations.
- * Provides endpoints to register a new book and retrieve all books.
+ * Provides endpoints to register one or many books and retrieve all books,
+ * either in one list or page by page using an id cursor, to search them by
+ * title/author/ISBN, to find available copies, to stream the whole catalog as newline-delimited JSON,
+ * and to follow registrations, borrows and returns as Server-Sent Events.
  */
-@RequiredArgsConstructor
 @RestController
 @RequestMapping("/api/books")
 public class BookController {
 
     private static final Logger logger = LoggerFactory.getLogger(BookController.class);
 
+    static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private static final String EXPORT_TIMEOUT = BookController.class.getName() + ".exportTimeout";
+
     private final BookService bookService;
+    private final BulkBookService bulkBookService;
+    private final CatalogExportService catalogExportService;
+    private final ViewVersions viewVersions;
+    private final CatalogSnapshot catalogSnapshot;
+    private final BookChangeFeed bookChangeFeed;
+    private final Duration exportTimeout;
+
+    public BookController(BookService bookService, BulkBookService bulkBookService,
+                          CatalogExportService catalogExportService, ViewVersions viewVersions,
+                          CatalogSnapshot catalogSnapshot, BookChangeFeed bookChangeFeed,
+                          @Value("${library.export.timeout:10m}") Duration exportTimeout) {
+        this.bookService = bookService;
+        this.bulkBookService = bulkBookService;
+        this.catalogExportService = catalogExportService;
+        this.viewVersions = viewVersions;
+        this.catalogSnapshot = catalogSnapshot;
+        this.bookChangeFeed = bookChangeFeed;
+        this.exportTimeout = exportTimeout;
+    }
 
     //Registers a new book in the system.
     @PostMapping
@@ -41,16 +91,166 @@ public class BookController {
         return ResponseEntity.status(201).body(savedBook);
     }
 
+    //Registers a batch of books; each item gets its own CREATED/REJECTED result.
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkBookResponse> registerBooks(@Valid @RequestBody BulkBookRequest req) {
+        logger.info("Received request to register {} books", req.books().size());
+
+        List<Book> books = req.books().stream()
+                .map(b -> new Book(b.isbn(), b.title(), b.author()))
+                .toList();
+        BulkBookResponse result = bulkBookService.createAll(books);
+
+        logger.info("Bulk registration finished: created={}, rejected={}", result.created(), result.rejected());
+
+        return ResponseEntity.ok(result);
+    }
+
 
-    //Retrieves all books in the system.
+    //Retrieves all books, or one keyset page when 'after' or 'limit' is given.
+    //The cursor for the following page is returned in the X-Next-Cursor header.
+    //Carries the catalog ETag; a matching If-None-Match is answered 304 without querying.
+    //With snapshots enabled the full list is sent as pre-serialized (gzipped if accepted) bytes.
+    //Read from the primary: a lagging replica would send data older than the ETag it goes with.
+    //X-Last-Event-ID is the change feed position before the data; subscribing with it misses nothing.
     @GetMapping
-    public ResponseEntity<List<BookWithBorrowerResponse>> getAllBooks() {
-        logger.info("📖 Request received to fetch all books");
+    public ResponseEntity<?> getAllBooks(@RequestParam(required = false) Long after,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                         WebRequest webRequest) {
+        CatalogSnapshot.Snapshot snapshot = after == null && limit == null ? catalogSnapshot.current() : null;
+        boolean gzip = snapshot != null && acceptsGzip(acceptEncoding);
+        //The gzipped bytes are another representation, so they carry their own strong ETag.
+        String etag = snapshot == null ? viewVersions.catalogETag() // read before the data, never newer than it
+                : gzip ? snapshot.gzipETag() : snapshot.etag();
+        String changeEventId = snapshot != null ? snapshot.changeEventId() : bookChangeFeed.currentEventId();
+        if (webRequest.checkNotModified(etag)) {
+            ResponseEntity.HeadersBuilder<?> notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag);
+            return (snapshot != null ? notModified.varyBy(HttpHeaders.ACCEPT_ENCODING) : notModified).build();
+        }
 
-        List<BookWithBorrowerResponse> books = bookService.getAllBooks();
+        if (snapshot != null) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache())
+                    .header(BookChangeFeed.POSITION_HEADER, changeEventId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING);
+            // The shared arrays are written as they are; nothing is copied or re-encoded per request.
+            if (gzip) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.gzip());
+            }
+            return response.body(snapshot.json());
+        }
+
+        if (after == null && limit == null) {
+            logger.info("📖 Request received to fetch all books");
+
+            List<BookWithBorrowerResponse> books = ReadRouting.onPrimary(bookService::getAllBooks);
+
+            logger.info("Retrieved {} books from the database", books.size());
+
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache())
+                    .header(BookChangeFeed.POSITION_HEADER, changeEventId)
+                    .body(books);
+        }
+
+        logger.info("📖 Request received to fetch books after ID={} with limit={}", after, limit);
+
+        CursorPage<BookWithBorrowerResponse> page = ReadRouting.onPrimary(() -> bookService.getBooksPage(after, limit));
+
+        logger.info("Retrieved {} books, next cursor={}", page.items().size(), page.nextCursor());
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache())
+                .header(BookChangeFeed.POSITION_HEADER, changeEventId);
+        if (page.nextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.items());
+    }
 
-        logger.info("Retrieved {} books from the database", books.size());
+    //Searches title, author and ISBN; best matches first, total match count in X-Total-Count.
+    @GetMapping("/search")
+    public ResponseEntity<List<BookSearchResponse>> searchBooks(@RequestParam("q") String query,
+                                                                @RequestParam(required = false) Integer page,
+                                                                @RequestParam(required = false) Integer size) {
+        logger.info("Searching books for '{}' (page={}, size={})", query, page, size);
+
+        ResultPage<BookSearchResponse> result = bookService.search(query, page, size);
+
+        return ResponseEntity.ok()
+                .header(ResultPage.TOTAL_COUNT_HEADER, Long.toString(result.total()))
+                .body(result.items());
+    }
+
+    //Lists available books (optionally of one ISBN) page by page; next cursor in X-Next-Cursor.
+    @GetMapping("/available")
+    public ResponseEntity<List<BookResponse>> getAvailableBooks(@RequestParam(required = false) String isbn,
+                                                                @RequestParam(required = false) Long after,
+                                                                @RequestParam(required = false) Integer limit) {
+        logger.info("Request received to fetch available books: ISBN={}, after ID={}, limit={}", isbn, after, limit);
+
+        CursorPage<BookResponse> page = bookService.getAvailableBooks(isbn, after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.items());
+    }
+
+    //Counts total and available copies of an ISBN.
+    @GetMapping("/available/count")
+    public ResponseEntity<AvailabilityResponse> countAvailable(@RequestParam String isbn) {
+        logger.info("Request received to count available copies of ISBN={}", isbn);
+
+        return ResponseEntity.ok(bookService.countAvailable(isbn));
+    }
+
+    //Streams every book (with borrower info) as newline-delimited JSON, for up to library.export.timeout.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBooks(NativeWebRequest request) {
+        logger.info("Request received to export the book catalog");
+
+        //Other async requests keep the default timeout; this one gets its own when streaming starts.
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_TIMEOUT, new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest asyncRequest, Callable<T> task) {
+                if (asyncRequest instanceof AsyncWebRequest asyncWebRequest) {
+                    asyncWebRequest.setTimeout(exportTimeout.toMillis());
+                }
+            }
+        });
+
+        StreamingResponseBody body = out -> {
+            long exported = catalogExportService.exportBooks(out);
+            logger.info("Exported {} books", exported);
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    //Streams registrations, borrows and returns as Server-Sent Events once they commit.
+    //A reconnecting client's Last-Event-ID resumes the stream; if those changes are no longer buffered
+    //a "reset" event says to reload GET /api/books first. 503 when too many clients are connected.
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        logger.info("Change feed subscription, Last-Event-ID={}", lastEventId);
+
+        SseEmitter emitter = bookChangeFeed.subscribe(lastEventId);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(emitter);
+    }
 
-        return ResponseEntity.ok(books);
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 }
@@ -1,18 +1,30 @@
 package com.example.library.controller;
 
+import com.example.library.cache.ViewVersions;
+import com.example.library.dto.BatchLoanRequest;
+import com.example.library.dto.BatchLoanResponse;
+import com.example.library.dto.BookResponse;
 import com.example.library.dto.BorrowerRequest;
 import com.example.library.dto.BorrowerResponse;
+import com.example.library.dto.BorrowerSummaryResponse;
 import com.example.library.dto.BorrowerWithBooksResponse;
+import com.example.library.dto.CursorPage;
 import com.example.library.entity.Borrower;
+import com.example.library.idempotency.IdempotencyStore;
+import com.example.library.routing.ReadRouting;
 import com.example.library.service.BorrowerService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * REST controller for managing borrower operations such as
@@ -26,6 +38,8 @@ public class BorrowerController {
     private static final Logger logger = LoggerFactory.getLogger(BorrowerController.class);
 
     private final BorrowerService borrowerService;
+    private final ViewVersions viewVersions;
+    private final IdempotencyStore idempotencyStore;
 
 
     // Register a new borrower.
@@ -42,45 +56,148 @@ public class BorrowerController {
 
 
     //Borrow a book for a specific borrower.
+    //Loan endpoints accept an Idempotency-Key: a retry with the same key gets the first response back.
     @PostMapping("/{borrowerId}/borrow/{bookId}")
-    public ResponseEntity<BorrowerResponse> borrow(@PathVariable Long borrowerId, @PathVariable Long bookId) {
+    public ResponseEntity<BorrowerResponse> borrow(@PathVariable Long borrowerId, @PathVariable Long bookId,
+                                                   @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         logger.info("Borrower ID={} is attempting to borrow book ID={}", borrowerId, bookId);
 
-        BorrowerResponse borrowedBook = borrowerService.borrow(borrowerId, bookId);
+        IdempotencyStore.Result<BorrowerResponse> borrowedBook = idempotent(idempotencyKey,
+                "borrow " + borrowerId + "/" + bookId, () -> borrowerService.borrow(borrowerId, bookId));
 
         logger.info("Book borrowed successfully");
-        return ResponseEntity.ok(borrowedBook);
+        return respond(HttpStatus.OK, borrowedBook);
     }
 
     //Return a borrowed book.
     @PostMapping("/{borrowerId}/return/{bookId}")
-    public ResponseEntity<BorrowerResponse> returnBook(@PathVariable Long borrowerId, @PathVariable Long bookId) {
+    public ResponseEntity<BorrowerResponse> returnBook(@PathVariable Long borrowerId, @PathVariable Long bookId,
+                                                       @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         logger.info("Borrower ID={} is returning book ID={}", borrowerId, bookId);
 
-        BorrowerResponse returnedBook = borrowerService.returnBook(borrowerId, bookId);
+        IdempotencyStore.Result<BorrowerResponse> returnedBook = idempotent(idempotencyKey,
+                "return " + borrowerId + "/" + bookId, () -> borrowerService.returnBook(borrowerId, bookId));
 
         logger.info("Book returned successfully");
-        return ResponseEntity.ok(returnedBook);
+        return respond(HttpStatus.OK, returnedBook);
+    }
+
+    //Borrows a stack of books in one call; each book gets its own BORROWED/REJECTED result.
+    //An all-or-nothing batch with any rejected book changes nothing and is answered 422.
+    @PostMapping("/{borrowerId}/borrow")
+    public ResponseEntity<BatchLoanResponse> borrowAll(@PathVariable Long borrowerId,
+                                                       @Valid @RequestBody BatchLoanRequest req,
+                                                       @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        logger.info("Borrower ID={} is attempting to borrow {} books", borrowerId, req.bookIds().size());
+
+        IdempotencyStore.Result<BatchLoanResponse> result = idempotent(idempotencyKey, "borrow " + borrowerId + " " + req,
+                () -> borrowerService.borrowAll(borrowerId, req.bookIds(), req.allOrNothing()));
+
+        logger.info("Batch borrow finished: applied={}, rejected={}", result.value().applied(), result.value().rejected());
+        return batchResponse(req, result);
+    }
+
+    //Returns a stack of books in one call; each book gets its own RETURNED/REJECTED result.
+    @PostMapping("/{borrowerId}/return")
+    public ResponseEntity<BatchLoanResponse> returnAll(@PathVariable Long borrowerId,
+                                                       @Valid @RequestBody BatchLoanRequest req,
+                                                       @RequestHeader(name = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
+        logger.info("Borrower ID={} is returning {} books", borrowerId, req.bookIds().size());
+
+        IdempotencyStore.Result<BatchLoanResponse> result = idempotent(idempotencyKey, "return " + borrowerId + " " + req,
+                () -> borrowerService.returnAll(borrowerId, req.bookIds(), req.allOrNothing()));
+
+        logger.info("Batch return finished: applied={}, rejected={}", result.value().applied(), result.value().rejected());
+        return batchResponse(req, result);
+    }
+
+    private static ResponseEntity<BatchLoanResponse> batchResponse(BatchLoanRequest req, IdempotencyStore.Result<BatchLoanResponse> result) {
+        boolean rejected = req.allOrNothing() && result.value().rejected() > 0;
+        return respond(rejected ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.OK, result);
+    }
+
+    //Runs a loan call at most once per Idempotency-Key; without a key it simply runs.
+    private <T> IdempotencyStore.Result<T> idempotent(String key, String request, Supplier<T> call) {
+        return key == null
+                ? new IdempotencyStore.Result<>(call.get(), false)
+                : idempotencyStore.execute(key, request, call);
+    }
+
+    private static <T> ResponseEntity<T> respond(HttpStatus status, IdempotencyStore.Result<T> result) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status);
+        if (result.replayed()) {
+            response.header(IdempotencyStore.REPLAYED_HEADER, "true");
+        }
+        return response.body(result.value());
+    }
+
+    //Lists borrowers with how many books each has out, page by page; next cursor in X-Next-Cursor.
+    //Reads only the borrower table, for dashboards that don't need the books themselves.
+    @GetMapping("/summary")
+    public ResponseEntity<List<BorrowerSummaryResponse>> getBorrowerSummaries(@RequestParam(required = false) Long after,
+                                                                              @RequestParam(required = false) Integer limit) {
+        logger.info("Fetching borrower summaries after ID={} with limit={}", after, limit);
+
+        CursorPage<BorrowerSummaryResponse> page = borrowerService.getBorrowerSummaries(after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.items());
     }
 
     //Get borrower details by ID.
+    //Carries the borrower's own ETag, so only borrowers whose loans changed revalidate with a 200.
+    //With ?books=N only the first N books are listed, plus totalBooks; the rest via /{id}/books.
+    //Read from the primary, like every response carrying an ETag: a replica may lag behind it.
     @GetMapping("/{id}")
-    public ResponseEntity<BorrowerWithBooksResponse> getBorrowersById(@PathVariable Long id) {
-        logger.info("Fetching borrower with ID={}", id);
+    public ResponseEntity<BorrowerWithBooksResponse> getBorrowersById(@PathVariable Long id,
+                                                                      @RequestParam(name = "books", required = false) Integer maxBooks,
+                                                                      WebRequest webRequest) {
+        String etag = viewVersions.borrowerETag(id);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        logger.info("Fetching borrower with ID={} (books={})", id, maxBooks);
+
+        BorrowerWithBooksResponse borrower = maxBooks == null
+                ? borrowerService.findById(id)
+                : ReadRouting.onPrimary(() -> borrowerService.findById(id, maxBooks));
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(borrower);
+    }
+
+    //Lists the books a borrower holds, page by page in book id order; next cursor in X-Next-Cursor.
+    @GetMapping("/{id}/books")
+    public ResponseEntity<List<BookResponse>> getBorrowerBooks(@PathVariable Long id,
+                                                               @RequestParam(required = false) Long after,
+                                                               @RequestParam(required = false) Integer limit) {
+        logger.info("Fetching books of borrower ID={} after ID={} with limit={}", id, after, limit);
 
-        BorrowerWithBooksResponse borrower = borrowerService.findById(id);
-        return ResponseEntity.ok(borrower);
+        CursorPage<BookResponse> page = borrowerService.getBorrowerBooks(id, after, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(CursorPage.NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.items());
     }
 
 
-    //Get a list of all borrowers.
+    //Get a list of all borrowers, with the catalog ETag; read from the primary, which the ETag describes.
     @GetMapping
-    public ResponseEntity<List<BorrowerWithBooksResponse>> getAllBorrowers() {
+    public ResponseEntity<List<BorrowerWithBooksResponse>> getAllBorrowers(WebRequest webRequest) {
+        String etag = viewVersions.catalogETag();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
         logger.info("Fetching all borrowers");
 
-        List<BorrowerWithBooksResponse> borrowers = borrowerService.getAllBorrowers();
+        List<BorrowerWithBooksResponse> borrowers = ReadRouting.onPrimary(borrowerService::getAllBorrowers);
         logger.info("Found {} borrowers", borrowers.size());
 
-        return ResponseEntity.ok(borrowers);
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(borrowers);
     }
 }
@@ -0,0 +1,3 @@
+package com.example.library.dto;
+
+public record AvailabilityResponse(String isbn, int copies, int available) {}
@@ -0,0 +1,14 @@
+package com.example.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome for one book of a batch. A rejected book carries the exception the single-book
+ * endpoint would have raised ({@code error}) and its message; NOT_APPLIED marks books that
+ * were accepted but dropped because another book made an all-or-nothing batch fail.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchLoanItemResponse(int index, Long bookId, Status status, String error, String message) {
+
+    public enum Status { BORROWED, RETURNED, REJECTED, NOT_APPLIED }
+}
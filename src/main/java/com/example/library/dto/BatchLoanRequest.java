@@ -0,0 +1,16 @@
+package com.example.library.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Books to borrow or return in one call. With {@code allOrNothing} a single rejected book
+ * leaves every loan unchanged; otherwise the accepted books are applied.
+ */
+public record BatchLoanRequest(@NotEmpty @Size(max = MAX_BOOKS) List<@NotNull Long> bookIds, boolean allOrNothing) {
+
+    public static final int MAX_BOOKS = 100;
+}
@@ -0,0 +1,5 @@
+package com.example.library.dto;
+
+import java.util.List;
+
+public record BatchLoanResponse(Long borrowerId, String name, int applied, int rejected, List<BatchLoanItemResponse> items) {}
@@ -0,0 +1,14 @@
+package com.example.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One committed catalog change as sent on the change feed, numbered in commit order.
+ * Registrations carry the book's details; borrows and returns the borrower's id.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookChangeEvent(long sequence, Type type, Long bookId, String isbn, String title, String author,
+                              Long borrowerId) {
+
+    public enum Type { BOOK_REGISTERED, BOOK_BORROWED, BOOK_RETURNED }
+}
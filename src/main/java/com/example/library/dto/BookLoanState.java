@@ -0,0 +1,6 @@
+package com.example.library.dto;
+
+/**
+ * A book id and the id of the borrower holding it, {@code null} when it is on the shelf.
+ */
+public record BookLoanState(Long id, Long borrowerId) {}
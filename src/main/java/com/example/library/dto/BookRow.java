@@ -0,0 +1,6 @@
+package com.example.library.dto;
+
+/**
+ * Flat, read-only projection of a book row; {@code borrowerId} is null when the copy is available.
+ */
+public record BookRow(Long id, String isbn, String title, String author, Long borrowerId) {}
@@ -0,0 +1,3 @@
+package com.example.library.dto;
+
+public record BookSearchResponse(Long id, String isbn, String title, String author, boolean available) {}
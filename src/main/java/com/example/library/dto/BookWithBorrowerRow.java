@@ -0,0 +1,8 @@
+package com.example.library.dto;
+
+/**
+ * Flat, read-only projection of a book joined with its borrower; the borrower columns
+ * are null when the copy is available.
+ */
+public record BookWithBorrowerRow(Long id, String isbn, String title, String author,
+                                  Long borrowerId, String borrowerName, String borrowerEmail) {}
@@ -0,0 +1,8 @@
+package com.example.library.dto;
+
+/**
+ * Flat, read-only projection of a borrower joined with one of their books; the book
+ * columns are null for a borrower without books.
+ */
+public record BorrowerBookRow(Long borrowerId, String name, String email,
+                              Long bookId, String isbn, String title, String author) {}
@@ -0,0 +1,6 @@
+package com.example.library.dto;
+
+/**
+ * A borrower with the number of books they have out, read from the borrower row alone.
+ */
+public record BorrowerSummaryResponse(Long id, String name, String email, int loanCount) {}
@@ -5,5 +5,11 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.List;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public record BorrowerWithBooksResponse(Long id, String name, String email, List<BookResponse> books) { }
+public record BorrowerWithBooksResponse(Long id, String name, String email, List<BookResponse> books, Integer totalBooks) {
+
+    // The full view: every book is listed, so no total is sent.
+    public BorrowerWithBooksResponse(Long id, String name, String email, List<BookResponse> books) {
+        this(id, name, email, books, null);
+    }
+}
 
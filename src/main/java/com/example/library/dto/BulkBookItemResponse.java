@@ -0,0 +1,9 @@
+package com.example.library.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkBookItemResponse(int index, Status status, BookResponse book, String message) {
+
+    public enum Status { CREATED, REJECTED }
+}
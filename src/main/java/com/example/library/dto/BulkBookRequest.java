@@ -0,0 +1,8 @@
+package com.example.library.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public record BulkBookRequest(@NotEmpty List<@Valid BookRequest> books) {}
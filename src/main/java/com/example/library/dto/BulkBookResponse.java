@@ -0,0 +1,5 @@
+package com.example.library.dto;
+
+import java.util.List;
+
+public record BulkBookResponse(int created, int rejected, List<BulkBookItemResponse> items) {}
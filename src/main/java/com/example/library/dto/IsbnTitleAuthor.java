@@ -0,0 +1,11 @@
+package com.example.library.dto;
+
+/**
+ * Read-only projection of the title/author registered for an ISBN.
+ */
+public record IsbnTitleAuthor(String isbn, String title, String author) {
+
+    public boolean matches(String title, String author) {
+        return this.title.equals(title) && this.author.equals(author);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.library.dto;
+
+import java.util.List;
+
+/**
+ * One page of an offset-paginated listing together with the total number of matches,
+ * which controllers return in the {@code X-Total-Count} header.
+ */
+public record ResultPage<T>(List<T> items, long total) {
+
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+}
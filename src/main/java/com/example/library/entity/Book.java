@@ -1,10 +1,38 @@
 package com.example.library.entity;
 
+import com.example.library.cache.SecondLevelCacheConfig;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@NamedQuery(name = "Book.findFirstByIsbn",
+        query = "select new com.example.library.dto.IsbnTitleAuthor(b.isbn, b.title, b.author) " +
+                "from Book b where b.isbn = :isbn order by b.id limit 1")
+@NamedQuery(name = "Book.findAllRowsWithBorrower",
+        query = "select new com.example.library.dto.BookWithBorrowerRow(b.id, b.isbn, b.title, b.author, " +
+                "br.id, br.name, br.email) from Book b left join b.borrower br order by b.id")
+@NamedQuery(name = "Book.findRowPageWithBorrower",
+        query = "select new com.example.library.dto.BookWithBorrowerRow(b.id, b.isbn, b.title, b.author, " +
+                "br.id, br.name, br.email) from Book b left join b.borrower br where b.id > :after order by b.id")
+@NamedQuery(name = "Book.findLoanRow",
+        query = "select new com.example.library.dto.BookWithBorrowerRow(b.id, b.isbn, b.title, b.author, " +
+                "br.id, br.name, br.email) from Book b, Borrower br where b.id = :bookId and br.id = :borrowerId")
+@NamedQuery(name = "Book.lockLoanStates",
+        query = "select new com.example.library.dto.BookLoanState(b.id, b.borrower.id) from Book b " +
+                "where b.id in :ids order by b.id",
+        lockMode = LockModeType.PESSIMISTIC_WRITE)
+@NamedQuery(name = "Book.findPageByBorrowerId",
+        query = "select new com.example.library.dto.BookResponse(b.id, b.isbn, b.title, b.author) " +
+                "from Book b where b.borrower.id = :borrowerId and b.id > :after order by b.id")
+@Table(indexes = {
+        @Index(name = "idx_book_isbn", columnList = "isbn"),
+        // A borrower's loans in id order, so a page of them is one index range from the cursor on.
+        @Index(name = "idx_book_borrower_id", columnList = "borrower_id, id")
+})
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.BOOK_REGION)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -12,8 +40,14 @@ import lombok.*;
 @RequiredArgsConstructor
 public class Book {
 
+    public static final String ID_SEQUENCE = "book_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Sequence ids (pooled by allocationSize) let Hibernate batch inserts; IDENTITY cannot.
+    // BookSequenceAligner moves the sequence past ids assigned before it existed.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @NotBlank
@@ -1,14 +1,31 @@
 package com.example.library.entity;
 
+import com.example.library.cache.SecondLevelCacheConfig;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@NamedQuery(name = "Borrower.findAllRowsWithBooks",
+        query = "select new com.example.library.dto.BorrowerBookRow(br.id, br.name, br.email, b.id, b.isbn, b.title, b.author) " +
+                "from Borrower br left join br.books b order by br.id, b.id")
+@NamedQuery(name = "Borrower.findRowsWithBooksById",
+        query = "select new com.example.library.dto.BorrowerBookRow(br.id, br.name, br.email, b.id, b.isbn, b.title, b.author) " +
+                "from Borrower br left join br.books b where br.id = :id order by b.id")
+@NamedQuery(name = "Borrower.findSummaryById",
+        query = "select new com.example.library.dto.BorrowerSummaryResponse(br.id, br.name, br.email, br.loanCount) " +
+                "from Borrower br where br.id = :id")
+@NamedQuery(name = "Borrower.findSummaryPage",
+        query = "select new com.example.library.dto.BorrowerSummaryResponse(br.id, br.name, br.email, br.loanCount) " +
+                "from Borrower br where br.id > :after order by br.id")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.BORROWER_REGION)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,6 +47,16 @@ public class Borrower {
     @NonNull
     private String email;
 
+    // Books currently on loan, moved by borrow/return with an SQL increment in their own transaction.
+    // Never written through the entity and deliberately without accessors: a loaded (or cached)
+    // borrower may hold an outdated value, so it is only read through queries.
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private int loanCount;
+
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.BORROWER_BOOKS_REGION)
     @OneToMany(mappedBy = "borrower", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     private List<Book> books = new ArrayList<>();
 }
@@ -0,0 +1,6 @@
+package com.example.library.event;
+
+/**
+ * Published when a copy has been lent to a borrower.
+ */
+public record BookBorrowedEvent(Long bookId, Long borrowerId) {}
@@ -0,0 +1,6 @@
+package com.example.library.event;
+
+/**
+ * Published when a new copy has been saved.
+ */
+public record BookRegisteredEvent(Long bookId, String isbn, String title, String author) {}
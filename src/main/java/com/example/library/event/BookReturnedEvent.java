@@ -0,0 +1,6 @@
+package com.example.library.event;
+
+/**
+ * Published when a borrower has handed a copy back.
+ */
+public record BookReturnedEvent(Long bookId, Long borrowerId) {}
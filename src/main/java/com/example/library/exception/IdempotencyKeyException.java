@@ -0,0 +1,5 @@
+package com.example.library.exception;
+
+public class IdempotencyKeyException extends RuntimeException {
+    public IdempotencyKeyException(String msg){ super(msg); }
+}
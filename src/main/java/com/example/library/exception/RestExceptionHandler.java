@@ -1,9 +1,13 @@
 package com.example.library.exception;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
@@ -13,10 +17,19 @@ import java.util.Map;
 @RestControllerAdvice
 public class RestExceptionHandler {
 
+    static final String METRIC = "library.exceptions";
+
+    private final MeterRegistry meterRegistry;
+
+    public RestExceptionHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<Map<String, String>> handleEmptyBody(HttpMessageNotReadableException ex) {
         Map<String, String> error = new HashMap<>();
         error.put("error", "Request body is missing or invalid");
+        count(ex, HttpStatus.BAD_REQUEST);
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
@@ -26,10 +39,34 @@ public class RestExceptionHandler {
         ex.getBindingResult().getFieldErrors().forEach(error -> {
             errors.put(error.getField(), error.getDefaultMessage());
         });
+        count(ex, HttpStatus.BAD_REQUEST);
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
 
-    private ResponseEntity<Object> buildResponse(HttpStatus status, String message) {
+    @ExceptionHandler(MissingServletRequestParameterException.class)
+    public ResponseEntity<Map<String, String>> handleMissingParameter(MissingServletRequestParameterException ex) {
+        Map<String, String> error = new HashMap<>();
+        error.put(ex.getParameterName(), "Required request parameter is missing");
+        count(ex, HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    // One counter per exception type and status, e.g. library.exceptions{exception=BookAlreadyBorrowedException,status=422}.
+    private void count(Exception ex, HttpStatus status) {
+        Counter.builder(METRIC)
+                .description("Exceptions translated into error responses")
+                .tag("exception", ex.getClass().getSimpleName())
+                .tag("status", Integer.toString(status.value()))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private ResponseEntity<Object> buildResponse(HttpStatus status, Exception ex) {
+        return buildResponse(status, ex, ex.getMessage());
+    }
+
+    private ResponseEntity<Object> buildResponse(HttpStatus status, Exception ex, String message) {
+        count(ex, status);
         return ResponseEntity.status(status).body(Map.of(
                 "status", status.value(),
                 "message", message
@@ -38,41 +75,52 @@ public class RestExceptionHandler {
 
     @ExceptionHandler(DuplicateBorrowerException.class)
     public ResponseEntity<Object> handleDuplicateBorrower(DuplicateBorrowerException ex) {
-        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex);
     }
 
     @ExceptionHandler(ResourceNotFoundException.class)
     public ResponseEntity<Object> handleNotFound(ResourceNotFoundException ex) {
-        return buildResponse(HttpStatus.NOT_FOUND, ex.getMessage());
+        return buildResponse(HttpStatus.NOT_FOUND, ex);
     }
 
     @ExceptionHandler(BookAlreadyBorrowedException.class)
     public ResponseEntity<Object> handleBookAlreadyBorrowed(BookAlreadyBorrowedException ex) {
-        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage()); // 409 Conflict
+        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex); // 409 Conflict
     }
 
     @ExceptionHandler(BookAlreadyReturnedException.class)
     public ResponseEntity<Object> handleBookAlreadyReturned(BookAlreadyReturnedException ex) {
-        return buildResponse(HttpStatus.CONFLICT, ex.getMessage()); // 409 Conflict
+        return buildResponse(HttpStatus.CONFLICT, ex); // 409 Conflict
     }
 
     @ExceptionHandler(BookNotBorrowedException.class)
     public ResponseEntity<Object> handleBookNotBorrowed(BookNotBorrowedException ex) {
-        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex);
     }
 
     @ExceptionHandler(DuplicateIsbnException.class)
     public ResponseEntity<Object> handleDuplicateIsbn(DuplicateIsbnException ex) {
-        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex);
+    }
+
+    @ExceptionHandler(IdempotencyKeyException.class)
+    public ResponseEntity<Object> handleIdempotencyKey(IdempotencyKeyException ex) {
+        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex);
     }
 
     @ExceptionHandler(ConflictException.class)
     public ResponseEntity<Object> handleConflict(ConflictException ex) {
-        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage());
+        return buildResponse(HttpStatus.UNPROCESSABLE_ENTITY, ex);
+    }
+
+    // No connection within the wait (pool or connection permits exhausted): ask the client to back off.
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    public ResponseEntity<Object> handleNoConnection(CannotCreateTransactionException ex) {
+        return buildResponse(HttpStatus.SERVICE_UNAVAILABLE, ex, "Database is busy, try again");
     }
 
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleGeneric(Exception ex) {
-        return buildResponse(HttpStatus.INTERNAL_SERVER_ERROR, "Unexpected server error");
+        return buildResponse(HttpStatus.INTERNAL_SERVER_ERROR, ex, "Unexpected server error");
     }
 }
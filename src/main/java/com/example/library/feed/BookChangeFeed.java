@@ -0,0 +1,312 @@
+package com.example.library.feed;
+
+import com.example.library.dto.BookChangeEvent;
+import com.example.library.event.BookBorrowedEvent;
+import com.example.library.event.BookRegisteredEvent;
+import com.example.library.event.BookReturnedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-Sent Events feed of committed registrations, borrows and returns
+ * ({@code GET /api/books/changes}), so screens showing availability can apply deltas
+ * instead of polling the whole catalog.
+ * <p>
+ * Changes are numbered in commit order and kept in a ring of the last {@code buffer-size}.
+ * A subscriber is only a position in that ring: publishing moves no data and never waits
+ * on a client, it just wakes the subscriber's sender, which writes what the client has not
+ * seen yet. A client that falls a full ring behind, or resumes from an event id the ring no
+ * longer holds (or one from before a restart), is sent a {@code reset} event and continues
+ * from the newest change; it should reload {@code GET /api/books}.
+ * <p>
+ * Event ids are {@code <epoch>-<sequence>}, so the {@code Last-Event-ID} a reconnecting
+ * {@code EventSource} sends resumes the stream. {@code GET /api/books} reports the id of the
+ * newest change it includes ({@value #POSITION_HEADER}), so a client that loads the list
+ * and then subscribes with it as {@code Last-Event-ID} misses nothing in between.
+ * Subscribers are published as
+ * {@code library.books.changes.subscribers}, resets as {@code library.books.changes.resets}.
+ */
+@Component
+public class BookChangeFeed {
+
+    public static final String RESET_EVENT = "reset";
+    public static final String POSITION_HEADER = "X-Last-Event-ID";
+
+    static final String SUBSCRIBERS_METRIC = "library.books.changes.subscribers";
+    static final String RESETS_METRIC = "library.books.changes.resets";
+
+    private static final int SEND_BATCH = 100;
+
+    private final String epoch = Long.toString(UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE, 36);
+    private final BookChangeEvent[] ring;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+    private final Executor sender;
+    private final ScheduledExecutorService heartbeat;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final LongAdder resets = new LongAdder();
+
+    // Guarded by ring.
+    private long latest;
+
+    @Autowired
+    public BookChangeFeed(MeterRegistry meterRegistry,
+                          @Value("${library.books.changes.buffer-size:1024}") int bufferSize,
+                          @Value("${library.books.changes.max-subscribers:200}") int maxSubscribers,
+                          @Value("${library.books.changes.timeout:10m}") Duration timeout,
+                          @Value("${library.books.changes.heartbeat:15s}") Duration heartbeatInterval) {
+        this(meterRegistry, bufferSize, maxSubscribers, timeout,
+                Executors.newCachedThreadPool(task -> newThread(task, "book-changes-sender")),
+                Executors.newSingleThreadScheduledExecutor(task -> newThread(task, "book-changes-heartbeat")));
+        heartbeat.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    BookChangeFeed(MeterRegistry meterRegistry, int bufferSize, int maxSubscribers, Duration timeout,
+                   Executor sender, ScheduledExecutorService heartbeat) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("library.books.changes.buffer-size must be at least 1");
+        }
+        this.ring = new BookChangeEvent[bufferSize];
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+        this.sender = sender;
+        this.heartbeat = heartbeat;
+        Gauge.builder(SUBSCRIBERS_METRIC, subscribers, Set::size)
+                .description("Clients connected to the book change feed")
+                .register(meterRegistry);
+        FunctionCounter.builder(RESETS_METRIC, resets, LongAdder::sum)
+                .description("Change feed clients told to reload because the changes they missed are no longer buffered")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream starting after {@code lastEventId} (null: with the next change), or
+     * returns null when {@code max-subscribers} clients are already connected.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = newEmitter(timeoutMillis);
+        Subscriber subscriber;
+        synchronized (subscribers) {
+            if (subscribers.size() >= maxSubscribers) {
+                return null;
+            }
+            subscriber = new Subscriber(emitter, resumeFrom(lastEventId));
+            subscribers.add(subscriber);
+        }
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        subscriber.wake();
+        return emitter;
+    }
+
+    // Cursor to start from: the resumed sequence, or -1 to send a reset first.
+    private long resumeFrom(String lastEventId) {
+        synchronized (ring) {
+            if (lastEventId == null || lastEventId.isBlank()) {
+                return latest;
+            }
+            int dash = lastEventId.lastIndexOf('-');
+            if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+                return -1;
+            }
+            try {
+                long sequence = Long.parseLong(lastEventId.substring(dash + 1).trim());
+                return sequence <= latest && sequence >= 0 ? sequence : -1;
+            } catch (NumberFormatException ex) {
+                return -1;
+            }
+        }
+    }
+
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookRegisteredEvent event) {
+        publish(BookChangeEvent.Type.BOOK_REGISTERED, event.bookId(), event.isbn(), event.title(), event.author(), null);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookBorrowedEvent event) {
+        publish(BookChangeEvent.Type.BOOK_BORROWED, event.bookId(), null, null, null, event.borrowerId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(BookReturnedEvent event) {
+        publish(BookChangeEvent.Type.BOOK_RETURNED, event.bookId(), null, null, null, event.borrowerId());
+    }
+
+    // Called after the change has committed; only appends and wakes senders.
+    private void publish(BookChangeEvent.Type type, Long bookId, String isbn, String title, String author, Long borrowerId) {
+        synchronized (ring) {
+            latest++;
+            ring[slot(latest)] = new BookChangeEvent(latest, type, bookId, isbn, title, author, borrowerId);
+        }
+        subscribers.forEach(Subscriber::wake);
+    }
+
+    /**
+     * Changes after {@code cursor}, at most {@code max}; null when the oldest of them has
+     * already been overwritten (or the cursor is -1, i.e. unknown).
+     */
+    List<BookChangeEvent> changesAfter(long cursor, int max) {
+        synchronized (ring) {
+            if (cursor < 0 || latest - cursor > ring.length) {
+                return null;
+            }
+            int count = (int) Math.min(max, latest - cursor);
+            List<BookChangeEvent> changes = new ArrayList<>(count);
+            for (long sequence = cursor + 1; sequence <= cursor + count; sequence++) {
+                changes.add(ring[slot(sequence)]);
+            }
+            return changes;
+        }
+    }
+
+    /**
+     * The id of the newest change so far. Read before loading data, it is a
+     * {@code Last-Event-ID} that resumes with every change the data may not include.
+     */
+    public String currentEventId() {
+        return eventId(latest());
+    }
+
+    long latest() {
+        synchronized (ring) {
+            return latest;
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % ring.length);
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    void heartbeat() {
+        subscribers.forEach(subscriber -> {
+            subscriber.heartbeatDue = true;
+            subscriber.wake();
+        });
+    }
+
+    private static Thread newThread(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sender instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * One connected client: the last sequence it was sent, and at most one sender task
+     * writing to it at a time, so a slow client holds up nobody else.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // Written by the running sender task only.
+        private volatile long cursor;
+        private volatile boolean heartbeatDue;
+        private volatile boolean closed;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        void wake() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                sender.execute(this::send);
+            }
+        }
+
+        private void send() {
+            try {
+                sendPending();
+            } catch (IOException | IllegalStateException ex) {
+                // The client went away or the stream already ended.
+                closed = true;
+                subscribers.remove(this);
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            // A change published while the flag was still set woke nobody.
+            if (cursor < latest() || heartbeatDue) {
+                wake();
+            }
+        }
+
+        private void sendPending() throws IOException {
+            boolean sent = false;
+            while (true) {
+                List<BookChangeEvent> changes = changesAfter(cursor, SEND_BATCH);
+                if (changes == null) {
+                    long newest = latest();
+                    resets.increment();
+                    emitter.send(SseEmitter.event().name(RESET_EVENT).id(eventId(newest))
+                            .data(Map.of("sequence", newest), MediaType.APPLICATION_JSON));
+                    cursor = newest;
+                    sent = true;
+                    continue;
+                }
+                if (changes.isEmpty()) {
+                    break;
+                }
+                for (BookChangeEvent change : changes) {
+                    emitter.send(SseEmitter.event().name(change.type().name()).id(eventId(change.sequence()))
+                            .data(change, MediaType.APPLICATION_JSON));
+                    cursor = change.sequence();
+                }
+                sent = true;
+            }
+            if (heartbeatDue) {
+                heartbeatDue = false;
+                if (!sent) {
+                    // Keeps proxies from closing an idle stream and finds clients that are gone.
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                }
+            }
+        }
+    }
+}
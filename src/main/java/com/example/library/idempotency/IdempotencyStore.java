@@ -0,0 +1,163 @@
+package com.example.library.idempotency;
+
+import com.example.library.exception.ConflictException;
+import com.example.library.exception.IdempotencyKeyException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the responses of borrow/return calls made with an {@code Idempotency-Key}, so a
+ * client retrying after a lost response gets the original answer without running the loan
+ * again. Remembered responses are bounded in number and expire {@code ttl} after the call
+ * completed.
+ * <p>
+ * Calls still running are kept apart from them and never evicted: a duplicate arriving while
+ * the first call is still running always finds it and waits for its outcome (up to
+ * {@code wait-timeout}) instead of executing. Failed calls are not remembered: their waiters
+ * get the same exception and a later retry runs again. A key may only be replayed for the
+ * request it was first used with. Calls are counted as {@code library.idempotency.requests}
+ * (tag {@code outcome=executed|replayed}); the store itself as the {@code cache.*} meters
+ * with tag {@code cache=idempotencyKeys}.
+ */
+@Component
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    static final String NAME = "idempotencyKeys";
+    static final String METRIC = "library.idempotency.requests";
+    static final int MAX_KEY_LENGTH = 255;
+
+    public record Result<T>(T value, boolean replayed) {}
+
+    private record Entry(String request, CompletableFuture<Object> response) {}
+
+    private final Cache<String, Entry> completed;
+    private final ConcurrentMap<String, Entry> inFlight = new ConcurrentHashMap<>();
+    private final long waitTimeoutMillis;
+    private final Counter executed;
+    private final Counter replayed;
+
+    public IdempotencyStore(MeterRegistry meterRegistry,
+                            @Value("${library.loans.idempotency.max-size:100000}") long maxSize,
+                            @Value("${library.loans.idempotency.ttl:10m}") Duration ttl,
+                            @Value("${library.loans.idempotency.wait-timeout:5s}") Duration waitTimeout) {
+        this.completed = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<String, Entry>build(), NAME);
+        this.waitTimeoutMillis = waitTimeout.toMillis();
+        this.executed = counter(meterRegistry, "executed");
+        this.replayed = counter(meterRegistry, "replayed");
+    }
+
+    /**
+     * Runs the work once per key and returns its result, or the remembered result of an
+     * earlier (or concurrent) call with the same key.
+     *
+     * @param request what the key is used for, e.g. the operation and its ids; a key seen
+     *                with a different request is rejected
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Result<T> execute(String key, String request, Supplier<T> work) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        Entry mine = new Entry(request, new CompletableFuture<>());
+        Entry first = claim(key, mine);
+        if (first == null) {
+            try {
+                T value = work.get();
+                mine.response().complete(value);
+                // Remembered before it stops being in flight, so a duplicate always finds one or the other.
+                completed.put(key, mine);
+                inFlight.remove(key, mine);
+                executed.increment();
+                return new Result<>(value, false);
+            } catch (RuntimeException | Error ex) {
+                inFlight.remove(key, mine);
+                mine.response().completeExceptionally(ex);
+                throw ex;
+            }
+        }
+        if (!first.request().equals(request)) {
+            throw new IdempotencyKeyException(HEADER + " was already used for a different request");
+        }
+        T value = (T) await(first.response());
+        replayed.increment();
+        return new Result<>(value, true);
+    }
+
+    /**
+     * Returns the call to replay or wait for, or null when {@code mine} is now in flight and
+     * has to run.
+     */
+    private Entry claim(String key, Entry mine) {
+        Entry done = completed.getIfPresent(key);
+        if (done != null) {
+            return done;
+        }
+        Entry running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return running;
+        }
+        done = completed.getIfPresent(key);
+        if (done == null) {
+            return null;
+        }
+        // The first call completed between the two lookups; whoever already joined mine gets its outcome.
+        inFlight.remove(key, mine);
+        if (done.request().equals(mine.request())) {
+            mine.response().complete(done.response().join());
+        } else {
+            mine.response().completeExceptionally(
+                    new IdempotencyKeyException(HEADER + " was already used for a different request"));
+        }
+        return done;
+    }
+
+    // Duplicates currently waiting on the call running under the key.
+    int waiting(String key) {
+        Entry running = inFlight.get(key);
+        return running == null ? 0 : running.response().getNumberOfDependents();
+    }
+
+    private Object await(CompletableFuture<Object> response) {
+        try {
+            return response.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Original request failed", ex.getCause());
+        } catch (TimeoutException ex) {
+            throw new ConflictException("A request with this " + HEADER + " is still in progress, try again");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ConflictException("Interrupted while waiting for the original request, try again");
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder(METRIC)
+                .description("Borrow/return calls carrying an Idempotency-Key, by whether they ran or were replayed")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
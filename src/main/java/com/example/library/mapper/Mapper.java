@@ -2,11 +2,14 @@ package com.example.library.mapper;
 
 import com.example.library.dto.BookResponse;
 import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.dto.BookWithBorrowerRow;
+import com.example.library.dto.BorrowerBookRow;
 import com.example.library.dto.BorrowerResponse;
 import com.example.library.dto.BorrowerWithBooksResponse;
 import com.example.library.entity.Book;
 import com.example.library.entity.Borrower;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class Mapper {
@@ -27,10 +30,42 @@ public class Mapper {
         return new BorrowerResponse(borrower.getId(), borrower.getName(), borrower.getEmail(),message,bookResponse);
     }
 
+    public static BorrowerResponse toBorrowerResponse(BookWithBorrowerRow row, String message) {
+        return new BorrowerResponse(row.borrowerId(), row.borrowerName(), row.borrowerEmail(), message,
+                new BookResponse(row.id(), row.isbn(), row.title(), row.author()));
+    }
+
     public static BorrowerWithBooksResponse toBorrowerWithBooksResponse(Borrower borrower) {
         List<BookResponse> books = borrower.getBooks().stream()
                 .map(Mapper::toBookResponse)
                 .toList();
         return new BorrowerWithBooksResponse(borrower.getId(), borrower.getName(), borrower.getEmail(), books);
     }
-}
\ No newline at end of file
+
+    public static BookWithBorrowerResponse toBookWithBorrowerResponse(BookWithBorrowerRow row) {
+        BorrowerResponse borrowerResponse = row.borrowerId() != null
+                ? new BorrowerResponse(row.borrowerId(), row.borrowerName(), row.borrowerEmail(), null, null)
+                : null;
+        return new BookWithBorrowerResponse(row.id(), row.isbn(), row.title(), row.author(), borrowerResponse);
+    }
+
+    // Rows must be ordered by borrower; consecutive rows of one borrower become one response.
+    public static List<BorrowerWithBooksResponse> toBorrowerWithBooksResponses(List<BorrowerBookRow> rows) {
+        List<BorrowerWithBooksResponse> borrowers = new ArrayList<>();
+        int from = 0;
+        while (from < rows.size()) {
+            BorrowerBookRow first = rows.get(from);
+            List<BookResponse> books = new ArrayList<>();
+            int to = from;
+            for (; to < rows.size() && rows.get(to).borrowerId().equals(first.borrowerId()); to++) {
+                BorrowerBookRow row = rows.get(to);
+                if (row.bookId() != null) {
+                    books.add(new BookResponse(row.bookId(), row.isbn(), row.title(), row.author()));
+                }
+            }
+            borrowers.add(new BorrowerWithBooksResponse(first.borrowerId(), first.name(), first.email(), books));
+            from = to;
+        }
+        return borrowers;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.library.profiling;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The most recent statements that ran longer than the slow-query threshold, newest first.
+ */
+public class SlowQueryLog {
+
+    public record Sample(Instant at, String request, String sql, long elapsedMillis, int batchSize) {}
+
+    private final int capacity;
+    private final Deque<Sample> samples = new ArrayDeque<>();
+
+    public SlowQueryLog(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized void add(Sample sample) {
+        if (capacity < 1) {
+            return;
+        }
+        if (samples.size() == capacity) {
+            samples.removeLast();
+        }
+        samples.addFirst(sample);
+    }
+
+    public synchronized List<Sample> samples() {
+        return new ArrayList<>(samples);
+    }
+
+    public synchronized void clear() {
+        samples.clear();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.library.profiling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * The SQL statements one request executed, with their timings. Statements are also
+ * grouped by shape (literals and IN lists collapsed) so repeated lookups that differ
+ * only in their parameters, the N+1 pattern, are counted together.
+ */
+public class SqlProfile {
+
+    static final int MAX_RECORDED = 200;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+
+    public record Statement(String sql, long elapsedMillis, int batchSize) {}
+
+    private final List<Statement> statements = new ArrayList<>();
+    private final Map<String, Integer> repeats = new LinkedHashMap<>();
+    private int count;
+    private long elapsedMillis;
+
+    public void add(String sql, long elapsedMillis, int batchSize) {
+        count++;
+        this.elapsedMillis += elapsedMillis;
+        if (statements.size() < MAX_RECORDED) {
+            statements.add(new Statement(sql, elapsedMillis, batchSize));
+        }
+        // Batches repeat one statement on purpose; only single executions count towards N+1.
+        if (batchSize == 0) {
+            repeats.merge(shape(sql), 1, Integer::sum);
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    // The first MAX_RECORDED statements, in execution order.
+    public List<Statement> statements() {
+        return Collections.unmodifiableList(statements);
+    }
+
+    public Map.Entry<String, Integer> mostRepeated() {
+        return repeats.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .orElse(Map.entry("", 0));
+    }
+
+    static String shape(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return IN_LIST.matcher(shape).replaceAll("(?)");
+    }
+}
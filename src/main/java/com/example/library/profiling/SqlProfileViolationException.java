@@ -0,0 +1,19 @@
+package com.example.library.profiling;
+
+/**
+ * A request went over its SQL statement budget or repeated one statement too often.
+ * Only thrown when the profiler runs in FAIL mode.
+ */
+public class SqlProfileViolationException extends RuntimeException {
+
+    private final transient SqlProfile profile;
+
+    public SqlProfileViolationException(String message, SqlProfile profile) {
+        super(message);
+        this.profile = profile;
+    }
+
+    public SqlProfile getProfile() {
+        return profile;
+    }
+}
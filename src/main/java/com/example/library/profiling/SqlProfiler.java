@@ -0,0 +1,111 @@
+package com.example.library.profiling;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives every statement from the proxied DataSource. Statements run while a request
+ * is being profiled are collected into its {@link SqlProfile}; statements slower than the
+ * threshold are sampled into the {@link SlowQueryLog} whether or not a request is active.
+ * <p>
+ * When a request ends, its profile is checked against the statement budget and the
+ * repeated-shape limit; violations are logged ({@link Mode#WARN}) or thrown as
+ * {@link SqlProfileViolationException} ({@link Mode#FAIL}, meant for tests).
+ */
+public class SqlProfiler implements QueryExecutionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlProfiler.class);
+
+    public enum Mode { WARN, FAIL }
+
+    private record Scope(String request, SqlProfile profile) {}
+
+    private final ThreadLocal<Scope> current = new ThreadLocal<>();
+    private final SlowQueryLog slowQueryLog;
+    private final Mode mode;
+    private final int maxStatements;
+    private final int maxRepeats;
+    private final long slowQueryMillis;
+
+    public SqlProfiler(SlowQueryLog slowQueryLog, Mode mode, int maxStatements, int maxRepeats, Duration slowQueryThreshold) {
+        this.slowQueryLog = slowQueryLog;
+        this.mode = mode;
+        this.maxStatements = maxStatements;
+        this.maxRepeats = maxRepeats;
+        this.slowQueryMillis = slowQueryThreshold.toMillis();
+    }
+
+    public void begin(String request) {
+        current.set(new Scope(request, new SqlProfile()));
+    }
+
+    /**
+     * Stops profiling the current request and checks its statements.
+     *
+     * @param request name to report the request under, e.g. its method and uri template
+     * @return the statements the request executed
+     */
+    public SqlProfile end(String request) {
+        Scope scope = current.get();
+        current.remove();
+        if (scope == null) {
+            return new SqlProfile();
+        }
+        List<String> violations = violations(scope.profile());
+        if (!violations.isEmpty()) {
+            String message = request + " executed " + scope.profile().count() + " SQL statements in "
+                    + scope.profile().elapsedMillis() + " ms: " + String.join("; ", violations);
+            if (mode == Mode.FAIL) {
+                throw new SqlProfileViolationException(message, scope.profile());
+            }
+            logger.warn(message);
+        }
+        return scope.profile();
+    }
+
+    // Stops profiling without checking, e.g. when the request failed anyway.
+    public void discard() {
+        current.remove();
+    }
+
+    List<String> violations(SqlProfile profile) {
+        List<String> violations = new ArrayList<>();
+        if (profile.count() > maxStatements) {
+            violations.add("more than " + maxStatements + " statements");
+        }
+        Map.Entry<String, Integer> repeated = profile.mostRepeated();
+        if (repeated.getValue() >= maxRepeats) {
+            violations.add("same statement " + repeated.getValue() + " times (N+1?): " + repeated.getKey());
+        }
+        return violations;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Scope scope = current.get();
+        long elapsed = execInfo.getElapsedTime();
+        int batchSize = execInfo.isBatch() ? execInfo.getBatchSize() : 0;
+        for (QueryInfo query : queryInfoList) {
+            if (scope != null) {
+                scope.profile().add(query.getQuery(), elapsed, batchSize);
+            }
+            if (elapsed >= slowQueryMillis) {
+                slowQueryLog.add(new SlowQueryLog.Sample(Instant.now(), scope == null ? null : scope.request(),
+                        query.getQuery(), elapsed, batchSize));
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.library.profiling;
+
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Opt-in SQL profiling ({@code library.sql-profiler.enabled=true}): wraps the DataSource
+ * with datasource-proxy, checks every API request's statements and samples slow ones for
+ * the {@code slowqueries} actuator endpoint. Off by default since every statement pays for
+ * the proxy and the bookkeeping.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "library.sql-profiler", name = "enabled", havingValue = "true")
+public class SqlProfilerConfig {
+
+    @Bean
+    public SlowQueryLog slowQueryLog(@Value("${library.sql-profiler.slow-query-samples:100}") int samples) {
+        return new SlowQueryLog(samples);
+    }
+
+    @Bean
+    public SqlProfiler sqlProfiler(SlowQueryLog slowQueryLog,
+                                   @Value("${library.sql-profiler.mode:warn}") SqlProfiler.Mode mode,
+                                   @Value("${library.sql-profiler.max-statements:20}") int maxStatements,
+                                   @Value("${library.sql-profiler.max-repeats:5}") int maxRepeats,
+                                   @Value("${library.sql-profiler.slow-query-threshold:100ms}") Duration slowQueryThreshold) {
+        return new SqlProfiler(slowQueryLog, mode, maxStatements, maxRepeats, slowQueryThreshold);
+    }
+
+    // Static and lazy so wrapping the DataSource doesn't pull the profiler into early bean creation.
+    @Bean
+    public static BeanPostProcessor sqlProfilingDataSourceWrapper(ObjectProvider<SqlProfiler> profiler) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create(dataSource)
+                            .name(beanName)
+                            .listener(profiler.getObject())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlProfilingFilter> sqlProfilingFilter(SqlProfiler profiler) {
+        return new FilterRegistrationBean<>(new SqlProfilingFilter(profiler));
+    }
+
+    @Bean
+    public SlowQueryEndpoint slowQueryEndpoint(SlowQueryLog slowQueryLog) {
+        return new SlowQueryEndpoint(slowQueryLog);
+    }
+}
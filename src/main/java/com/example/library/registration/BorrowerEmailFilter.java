@@ -0,0 +1,84 @@
+package com.example.library.registration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over the emails of registered borrowers, so registering an email that was
+ * never seen can skip the existence query. It never answers "absent" for an email that was
+ * added; "maybe present" has to be confirmed against the database. Emails are lower-cased
+ * first, so case variants are also confirmed, whatever the column's collation.
+ * <p>
+ * Sized for {@code expected-insertions} emails at {@code false-positive-rate}; past that
+ * the rate, and with it the share of registrations that still run the query, climbs.
+ * Bits are set with compare-and-set, so adds and lookups take no lock.
+ */
+@Component
+public class BorrowerEmailFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    public BorrowerEmailFilter(@Value("${library.borrowers.email-filter.expected-insertions:1000000}") long expectedInsertions,
+                               @Value("${library.borrowers.email-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("library.borrowers.email-filter.expected-insertions must be at least 1 "
+                    + "and false-positive-rate between 0 and 1");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray(Math.toIntExact((optimalBits + 63) / 64));
+        this.bits = words.length() * 64L;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+    }
+
+    public void add(String email) {
+        long hash = hash(email);
+        long step = mix(hash ^ 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(hash + i * step, bits);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((words.get(word) & mask) == 0) {
+                words.getAndAccumulate(word, mask, (current, set) -> current | set);
+            }
+        }
+    }
+
+    public boolean mightContain(String email) {
+        long hash = hash(email);
+        long step = mix(hash ^ 0xC2B2AE3D27D4EB4FL);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(hash + i * step, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int hashCount() {
+        return hashes;
+    }
+
+    // 64-bit FNV-1a over the lower-cased chars, finished with murmur3's avalanche step.
+    private static long hash(String email) {
+        String key = email.toLowerCase(Locale.ROOT);
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.library.registration;
+
+import com.example.library.repository.BorrowerRepository;
+import com.example.library.routing.ReadRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Adds every registered email to {@link BorrowerEmailFilter} once the application is ready.
+ * Registrations arriving before that are still correct: the unique constraint catches
+ * duplicates the filter has not seen yet.
+ */
+@Component
+public class BorrowerEmailFilterLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(BorrowerEmailFilterLoader.class);
+
+    private final BorrowerEmailFilter filter;
+    private final BorrowerRepository borrowerRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public BorrowerEmailFilterLoader(BorrowerEmailFilter filter, BorrowerRepository borrowerRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.filter = filter;
+        this.borrowerRepository = borrowerRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.nanoTime();
+        AtomicLong loaded = new AtomicLong();
+        // From the primary, so emails registered just before startup are not missing from the filter.
+        ReadRouting.onPrimary(() -> readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<String> emails = borrowerRepository.streamAllEmails()) {
+                emails.forEach(email -> {
+                    filter.add(email);
+                    loaded.incrementAndGet();
+                });
+            }
+        }));
+        logger.info("Borrower email filter built with {} emails in {} ms", loaded.get(), (System.nanoTime() - started) / 1_000_000);
+    }
+}
@@ -1,11 +1,104 @@
 package com.example.library.repository;
 
+import com.example.library.dto.BookResponse;
+import com.example.library.dto.BookLoanState;
+import com.example.library.dto.BookRow;
+import com.example.library.dto.BookWithBorrowerRow;
+import com.example.library.dto.IsbnTitleAuthor;
 import com.example.library.entity.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookRepository extends JpaRepository<Book, Long> {
+
+    // Query space of the loan UPDATEs below; matches no entity table (see LoanCacheEvictor).
+    String LOAN_SPACE = "book_loan";
+
     List<Book> findByIsbn(String isbn);
+
+    // Every copy of an ISBN shares title/author, so one row (via idx_book_isbn) is enough.
+    // Named query on Book: as a derived query it was rebuilt as Criteria and re-translated on every call.
+    Optional<IsbnTitleAuthor> findFirstByIsbn(@Param("isbn") String isbn);
     Optional<Book> findById(Long id);
+
+    // Read-only rows straight from one outer join; nothing is managed or dirty-checked.
+    // Declared as named queries on Book: Spring Data 3.1 re-parses @Query JPQL on every call.
+    List<BookWithBorrowerRow> findAllRowsWithBorrower();
+
+    // Lends the book only if it is free and the borrower exists; returns the number of rows updated.
+    // coalesce() rather than 'borrower_id is null': H2 would otherwise walk the borrower_id index over every free copy.
+    // Declares a query space that is no entity's table, so Hibernate clears no second-level cache region;
+    // LoanCacheEvictor drops just this book and the borrower's books collection after commit.
+    @Modifying(clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = LOAN_SPACE))
+    @Query(value = "update book set borrower_id = :borrowerId, version = version + 1 " +
+            "where id = :bookId and coalesce(borrower_id, 0) = 0 " +
+            "and exists (select 1 from borrower where id = :borrowerId)", nativeQuery = true)
+    int claim(@Param("bookId") Long bookId, @Param("borrowerId") Long borrowerId);
+
+    // Frees the book only if it is currently lent to the given borrower; returns the number of rows updated.
+    @Modifying(clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = LOAN_SPACE))
+    @Query(value = "update book set borrower_id = null, version = version + 1 " +
+            "where id = :bookId and borrower_id = :borrowerId", nativeQuery = true)
+    int release(@Param("bookId") Long bookId, @Param("borrowerId") Long borrowerId);
+
+    // The book and the given borrower in one select (both by primary key), whether or not the book is lent to them;
+    // builds the claim/release response right after the UPDATE.
+    Optional<BookWithBorrowerRow> findLoanRow(@Param("bookId") Long bookId, @Param("borrowerId") Long borrowerId);
+
+    // Current holder of each requested book, rows locked until commit in id order; missing ids have no row.
+    List<BookLoanState> lockLoanStates(@Param("ids") Collection<Long> ids);
+
+    // Set-based claim/release of books already locked and checked by lockLoanStates; the guards only
+    // make a mismatch show up as a short count. Declares the same query space as claim/release.
+    @Modifying(clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = LOAN_SPACE))
+    @Query(value = "update book set borrower_id = :borrowerId, version = version + 1 " +
+            "where id in (:bookIds) and coalesce(borrower_id, 0) = 0", nativeQuery = true)
+    int claimAll(@Param("bookIds") Collection<Long> bookIds, @Param("borrowerId") Long borrowerId);
+
+    @Modifying(clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = LOAN_SPACE))
+    @Query(value = "update book set borrower_id = null, version = version + 1 " +
+            "where id in (:bookIds) and borrower_id = :borrowerId", nativeQuery = true)
+    int releaseAll(@Param("bookIds") Collection<Long> bookIds, @Param("borrowerId") Long borrowerId);
+
+    // Keyset page: rows strictly after the cursor id, borrower columns joined in the same select.
+    List<BookWithBorrowerRow> findRowPageWithBorrower(@Param("after") long after, Pageable pageable);
+
+    // Keyset page of the books lent to one borrower, seeking on idx_book_borrower_id.
+    List<BookResponse> findPageByBorrowerId(@Param("borrowerId") Long borrowerId, @Param("after") long after,
+                                            Pageable pageable);
+
+    // Forward-only cursor for exports; must be consumed inside a transaction and closed.
+    // Bypasses the second-level cache so an export doesn't flush it with every book.
+    @Query("select b from Book b left join fetch b.borrower order by b.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+    })
+    Stream<Book> streamAllWithBorrower();
+
+    // Flat rows for building in-memory indexes at startup; no entities are managed.
+    @Query("select new com.example.library.dto.BookRow(b.id, b.isbn, b.title, b.author, b.borrower.id) " +
+            "from Book b order by b.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<BookRow> streamAllRows();
+
+    @Query("select distinct new com.example.library.dto.IsbnTitleAuthor(b.isbn, b.title, b.author) " +
+            "from Book b where b.isbn in :isbns")
+    List<IsbnTitleAuthor> findTitleAuthorByIsbnIn(@Param("isbns") Collection<String> isbns);
 }
@@ -0,0 +1,74 @@
+package com.example.library.repository;
+
+import com.example.library.entity.Book;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Moves {@code book_seq} past the highest existing book id before anything is inserted.
+ * <p>
+ * Books used to take IDENTITY ids. On a database that already has books,
+ * {@code ddl-auto=update} creates the sequence (a one-row table on MySQL) starting at 1,
+ * so the first registrations would reuse existing ids. Runs once all singletons exist,
+ * i.e. after the schema update and before the web server takes requests; it only ever
+ * moves the sequence forward, so running it again, or on several instances at once, is safe.
+ */
+@Component
+public class BookSequenceAligner implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSequenceAligner.class);
+
+    private final Dialect dialect;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public BookSequenceAligner(EntityManagerFactory entityManagerFactory, DataSource dataSource) {
+        this(entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect(), dataSource);
+    }
+
+    BookSequenceAligner(Dialect dialect, DataSource dataSource) {
+        this.dialect = dialect;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        align();
+    }
+
+    /**
+     * Returns the value the sequence was moved to, or 0 when it was already far enough.
+     */
+    long align() {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from book", Long.class);
+        if (maxId == null) {
+            return 0;
+        }
+        // The pooled optimizer hands out the allocationSize ids ending at the value it reads.
+        long target = maxId + Book.ID_ALLOCATION_SIZE;
+        SequenceSupport sequences = dialect.getSequenceSupport();
+        if (sequences.supportsSequences()) {
+            // Reading the next value costs one unused block of ids.
+            Long next = jdbcTemplate.queryForObject(sequences.getSequenceNextValString(Book.ID_SEQUENCE), Long.class);
+            if (next == null || next >= target) {
+                return 0;
+            }
+            jdbcTemplate.execute("alter sequence " + Book.ID_SEQUENCE + " restart with " + target);
+        } else if (jdbcTemplate.update("update " + Book.ID_SEQUENCE + " set next_val = ? where next_val < ?",
+                target, target) == 0) {
+            return 0;
+        }
+        logger.warn("Moved {} to {}, past existing book id {}", Book.ID_SEQUENCE, target, maxId);
+        return target;
+    }
+}
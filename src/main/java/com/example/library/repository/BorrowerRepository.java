@@ -1,12 +1,47 @@
 package com.example.library.repository;
 
+import com.example.library.dto.BorrowerBookRow;
+import com.example.library.dto.BorrowerSummaryResponse;
 import com.example.library.entity.Borrower;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BorrowerRepository extends JpaRepository<Borrower, Long> {
     Optional<Borrower> findByEmail(String email);
 
     boolean existsByEmail(String email);
 
+    // One row per (borrower, book), ordered by borrower; a borrower without books yields one row with null book columns.
+    // Declared as named queries on Borrower: Spring Data 3.1 re-parses @Query JPQL on every call.
+    List<BorrowerBookRow> findAllRowsWithBooks();
+
+    List<BorrowerBookRow> findRowsWithBooksById(@Param("id") Long id);
+
+    Optional<BorrowerSummaryResponse> findSummaryById(@Param("id") Long id);
+
+    // Keyset page of borrowers with their loan count; reads the borrower table only.
+    List<BorrowerSummaryResponse> findSummaryPage(@Param("after") long after, Pageable pageable);
+
+    // Moves the denormalized loan count along with a claim/release, in the same transaction.
+    // The declared space is no entity's table, so Hibernate keeps the borrowers cache region:
+    // the count is never read from a loaded borrower (see Borrower.loanCount).
+    @Modifying
+    @Query(value = "update borrower set loan_count = loan_count + :delta where id = :id", nativeQuery = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "borrower_loan_count"))
+    int adjustLoanCount(@Param("id") Long id, @Param("delta") int delta);
+
+    // Every registered email, for warming the email filter; must be consumed inside a transaction and closed.
+    @Query("select br.email from Borrower br")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<String> streamAllEmails();
 }
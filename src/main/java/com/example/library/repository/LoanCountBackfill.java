@@ -0,0 +1,74 @@
+package com.example.library.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Sets {@code borrower.loan_count} from the books actually on loan, once per database.
+ * <p>
+ * {@code ddl-auto=update} adds the column with 0 to databases that already had loans, and
+ * borrow/return only ever move it by one, so it would stay wrong. The backfill runs before
+ * the web server takes requests and records itself in {@code data_migration} in the same
+ * transaction; the marker's primary key keeps instances starting together from running it
+ * twice, and a failed backfill leaves no marker, so the next start tries again.
+ */
+@Component
+public class LoanCountBackfill implements SmartInitializingSingleton {
+
+    static final String NAME = "borrower_loan_count_backfill";
+
+    private static final Logger logger = LoggerFactory.getLogger(LoanCountBackfill.class);
+
+    private static final String COUNT_LOANS = "(select count(*) from book b where b.borrower_id = br.id)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+
+    public LoanCountBackfill(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    /**
+     * Returns the number of borrowers corrected, or -1 when the backfill had already run.
+     */
+    int backfill() {
+        jdbcTemplate.execute("create table if not exists data_migration " +
+                "(name varchar(100) not null primary key, applied_at timestamp not null)");
+        if (applied()) {
+            return -1;
+        }
+        long started = System.nanoTime();
+        Integer corrected;
+        try {
+            corrected = transaction.execute(status -> {
+                // Taken first: a second instance waits here, then fails on the key instead of updating again.
+                jdbcTemplate.update("insert into data_migration (name, applied_at) values (?, current_timestamp)", NAME);
+                return jdbcTemplate.update("update borrower br set loan_count = " + COUNT_LOANS +
+                        " where loan_count <> " + COUNT_LOANS);
+            });
+        } catch (DataIntegrityViolationException e) {
+            return -1;
+        }
+        logger.info("Loan count backfill corrected {} borrowers in {} ms", corrected, (System.nanoTime() - started) / 1_000_000);
+        return corrected == null ? 0 : corrected;
+    }
+
+    private boolean applied() {
+        Integer markers = jdbcTemplate.queryForObject("select count(*) from data_migration where name = ?", Integer.class, NAME);
+        return markers != null && markers > 0;
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.library.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in read replicas ({@code library.datasource.routing.enabled=true}): read-only
+ * transactions run on one of the {@code library.datasource.replicas[n]} databases, writes
+ * and everything else on the primary ({@code spring.datasource.*}).
+ * <p>
+ * Each replica gets a Hikari pool configured by {@code library.datasource.replica-pool.*}
+ * (the same keys as {@code spring.datasource.hikari.*}); a replica without credentials
+ * uses the primary's.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "library.datasource.routing", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    record Replica(String url, String username, String password) {}
+
+    @Bean(destroyMethod = "close")
+    public ReadReplicas readReplicas(Environment environment,
+                                     @Value("${library.datasource.routing.strategy:round-robin}") ReadReplicas.Strategy strategy,
+                                     @Value("${library.datasource.routing.replica-retry-after:10s}") Duration retryAfter,
+                                     @Value("${spring.datasource.username:}") String primaryUsername,
+                                     @Value("${spring.datasource.password:}") String primaryPassword) {
+        Binder binder = Binder.get(environment);
+        List<Replica> replicas = binder.bind("library.datasource.replicas", Bindable.listOf(Replica.class))
+                .orElse(List.of());
+        if (replicas.isEmpty()) {
+            throw new IllegalStateException("library.datasource.routing.enabled=true needs library.datasource.replicas[0].url");
+        }
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (Replica replica : replicas) {
+            HikariDataSource pool = new HikariDataSource();
+            binder.bind("library.datasource.replica-pool", Bindable.ofInstance(pool));
+            pool.setPoolName("replica-" + pools.size());
+            pool.setJdbcUrl(replica.url());
+            pool.setUsername(replica.username() == null ? primaryUsername : replica.username());
+            pool.setPassword(replica.password() == null ? primaryPassword : replica.password());
+            pools.add(pool);
+        }
+        return new ReadReplicas(pools, strategy, retryAfter);
+    }
+
+    // Static and lazy so wrapping the DataSource doesn't pull the replicas into early bean creation.
+    // Returns the concrete type: Spring reads PriorityOrdered off the factory method's return type.
+    @Bean
+    public static RoutingDataSourceWrapper readWriteRoutingDataSourceWrapper(ObjectProvider<ReadReplicas> replicas) {
+        return new RoutingDataSourceWrapper(replicas);
+    }
+
+    /**
+     * Wraps the DataSource before any other wrapper: PriorityOrdered post-processors run
+     * ahead of the unordered ones (the SQL profiler, the virtual-thread connection limiter),
+     * so those wrap the routing and see replica connections as well as primary ones.
+     */
+    static final class RoutingDataSourceWrapper implements BeanPostProcessor, PriorityOrdered {
+
+        private final ObjectProvider<ReadReplicas> replicas;
+
+        private RoutingDataSourceWrapper(ObjectProvider<ReadReplicas> replicas) {
+            this.replicas = replicas;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource) {
+                return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(dataSource, replicas.getObject()));
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
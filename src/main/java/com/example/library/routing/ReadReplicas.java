@@ -0,0 +1,151 @@
+package com.example.library.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The replica connection pools read-only transactions are spread over, picked round-robin
+ * or by least load (connections in use plus threads waiting for one). A replica that fails
+ * to hand out a connection is skipped for {@code retryAfter}; while every replica is
+ * skipped, reads go to the primary.
+ * <p>
+ * Each pool publishes the {@code hikaricp.*} meters (tag {@code pool=replica-<n>}); reads
+ * are counted per pool that served them as {@code library.datasource.reads} (the primary as
+ * {@code pool=primary}) and replica failures as {@code library.datasource.replica.failures}.
+ */
+public class ReadReplicas implements MeterBinder, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadReplicas.class);
+
+    static final String READS_METRIC = "library.datasource.reads";
+    static final String FAILURES_METRIC = "library.datasource.replica.failures";
+
+    public enum Strategy { ROUND_ROBIN, LEAST_LOADED }
+
+    private final List<HikariDataSource> pools;
+    private final Strategy strategy;
+    private final Duration retryAfter;
+    private final AtomicInteger next = new AtomicInteger();
+    // System.nanoTime() until which each replica is skipped; 0 while it is healthy.
+    private final AtomicLongArray skippedUntil;
+    // One per replica, the last one for reads the primary served.
+    private final LongAdder[] reads;
+    private final LongAdder[] failures;
+
+    public ReadReplicas(List<HikariDataSource> pools, Strategy strategy, Duration retryAfter) {
+        if (pools.isEmpty()) {
+            throw new IllegalArgumentException("At least one read replica is needed");
+        }
+        this.pools = List.copyOf(pools);
+        this.strategy = strategy;
+        this.retryAfter = retryAfter;
+        this.skippedUntil = new AtomicLongArray(pools.size());
+        this.reads = adders(pools.size() + 1);
+        this.failures = adders(pools.size());
+    }
+
+    /**
+     * A connection from the replica whose turn it is, or null when every replica is being
+     * skipped or the chosen one just failed; the caller then reads from the primary.
+     */
+    Connection getConnection() {
+        int replica = choose();
+        if (replica < 0) {
+            return null;
+        }
+        try {
+            Connection connection = pools.get(replica).getConnection();
+            reads[replica].increment();
+            return connection;
+        } catch (SQLException | RuntimeException ex) {
+            // Hikari reports a replica it cannot reach on first use as a PoolInitializationException.
+            failures[replica].increment();
+            skippedUntil.set(replica, System.nanoTime() + retryAfter.toNanos());
+            logger.warn("Read replica {} failed to hand out a connection; skipping it for {}",
+                    pools.get(replica).getPoolName(), retryAfter, ex);
+            return null;
+        }
+    }
+
+    void primaryRead() {
+        reads[pools.size()].increment();
+    }
+
+    // Index of the replica to read from, or -1 when all are being skipped.
+    int choose() {
+        int count = pools.size();
+        int start = Math.floorMod(next.getAndIncrement(), count);
+        long now = System.nanoTime();
+        int chosen = -1;
+        int chosenLoad = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            int replica = (start + i) % count;
+            long until = skippedUntil.get(replica);
+            if (until != 0 && now - until < 0) {
+                continue;
+            }
+            if (strategy == Strategy.ROUND_ROBIN) {
+                return replica;
+            }
+            // Ties go to the first candidate after the rotating start, so idle replicas share the load.
+            int load = load(replica);
+            if (load < chosenLoad) {
+                chosen = replica;
+                chosenLoad = load;
+            }
+        }
+        return chosen;
+    }
+
+    private int load(int replica) {
+        HikariPoolMXBean pool = pools.get(replica).getHikariPoolMXBean();
+        return pool == null ? 0 : pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (int i = 0; i < pools.size(); i++) {
+            HikariDataSource pool = pools.get(i);
+            pool.setMetricRegistry(registry);
+            registerReads(registry, pool.getPoolName(), reads[i]);
+            FunctionCounter.builder(FAILURES_METRIC, failures[i], LongAdder::sum)
+                    .description("Times a read replica failed to hand out a connection and was skipped")
+                    .tag("pool", pool.getPoolName())
+                    .register(registry);
+        }
+        registerReads(registry, "primary", reads[pools.size()]);
+    }
+
+    private static void registerReads(MeterRegistry registry, String pool, LongAdder count) {
+        FunctionCounter.builder(READS_METRIC, count, LongAdder::sum)
+                .description("Connections taken for read-only transactions, by the pool that served them")
+                .tag("pool", pool)
+                .register(registry);
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
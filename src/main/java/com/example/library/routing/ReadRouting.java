@@ -0,0 +1,40 @@
+package com.example.library.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Keeps the reads of the calling thread on the primary even inside read-only transactions,
+ * for code that must see every committed write: loads into caches and indexes that local
+ * writes invalidate, and checks made right before a write. Must be entered before the
+ * transaction runs its first statement. Without read replicas it has no effect.
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean outer = PRIMARY.get();
+        PRIMARY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (outer == null) {
+                PRIMARY.remove();
+            }
+        }
+    }
+
+    public static void onPrimary(Runnable work) {
+        onPrimary(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    static boolean isPrimaryRequired() {
+        return PRIMARY.get() != null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.library.routing;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Serves read-only transactions from {@link ReadReplicas} and everything else (writes,
+ * reads inside a write transaction, reads pinned with {@link ReadRouting#onPrimary}, work
+ * outside a transaction) from the primary.
+ * <p>
+ * Transactions fetch their connection before they are marked read-only, so this must sit
+ * behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which
+ * defers the choice to the first statement. Unwrapping reaches the primary pool, so its
+ * health check and meters are unchanged.
+ */
+class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final ReadReplicas replicas;
+
+    ReadWriteRoutingDataSource(DataSource primary, ReadReplicas replicas) {
+        this.primary = primary;
+        this.replicas = replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary.getConnection();
+        }
+        if (!ReadRouting.isPrimaryRequired()) {
+            Connection replica = replicas.getConnection();
+            if (replica != null) {
+                return replica;
+            }
+        }
+        replicas.primaryRead();
+        return primary.getConnection();
+    }
+
+    // Explicit credentials belong to the primary's database user.
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? (T) this : primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+}
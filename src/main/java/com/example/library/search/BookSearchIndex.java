@@ -0,0 +1,482 @@
+package com.example.library.search;
+
+import com.example.library.dto.BookSearchResponse;
+import com.example.library.dto.ResultPage;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over book title, author and ISBN.
+ * <p>
+ * Queries are split into lower-cased tokens and every token must match (AND). Tokens
+ * match terms exactly, except the last one which, from {@link #MIN_PREFIX_LENGTH}
+ * characters on, also matches as a prefix (search-as-you-type); prefix matches score half.
+ * Every term a prefix covers counts, so the total is exact. A match scores the summed
+ * weights of the fields it occurs in (ISBN 4, title 3, author 2). Results are ordered by
+ * score, then id.
+ * <p>
+ * The token with the smallest postings is scanned first; the other tokens are then
+ * checked per candidate by binary search in their sorted postings, by walking their
+ * postings, or, for a prefix covering many terms, against the terms kept per book,
+ * whichever is cheapest. A query costs roughly its most selective token rather than its
+ * most common one.
+ * <p>
+ * Books are kept in an array indexed by id. Book ids come from a sequence and stay dense;
+ * they must fit in an {@code int}.
+ */
+@Component
+public class BookSearchIndex {
+
+    static final int MIN_PREFIX_LENGTH = 2;
+
+    // Rough cost of checking one candidate's own terms, in binary-search probes.
+    private static final int VERIFY_COST = 4;
+    private static final int FIELD_MASK = (1 << Field.BITS) - 1;
+    private static final long EXACT_BIT = 1L << Field.BITS;
+    // A prefix whose postings reach 1/DENSE_SCAN_RATIO of the id range is merged in an array over all ids.
+    private static final int DENSE_SCAN_RATIO = 16;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private enum Field {
+        ISBN(4f), TITLE(3f), AUTHOR(2f);
+
+        static final int BITS = 3;
+
+        final float weight;
+        final int mask = 1 << ordinal();
+
+        Field(float weight) {
+            this.weight = weight;
+        }
+
+        // Summed weights for every combination of fields, looked up by mask.
+        private static final float[] SCORES = new float[1 << BITS];
+
+        static {
+            for (int mask = 0; mask < SCORES.length; mask++) {
+                for (Field field : values()) {
+                    if ((mask & field.mask) != 0) {
+                        SCORES[mask] += field.weight;
+                    }
+                }
+            }
+        }
+
+        static float score(int mask) {
+            return SCORES[mask];
+        }
+    }
+
+    private static final class IndexedBook {
+        final Long id;
+        final String isbn;
+        final String title;
+        final String author;
+        // The book's own terms: each term's number shifted past the mask of the fields it occurs in.
+        final int[] terms;
+        volatile boolean available;
+
+        IndexedBook(Long id, String isbn, String title, String author, int[] terms, boolean available) {
+            this.id = id;
+            this.isbn = isbn;
+            this.title = title;
+            this.author = author;
+            this.terms = terms;
+            this.available = available;
+        }
+
+        BookSearchResponse toResponse() {
+            return new BookSearchResponse(id, isbn, title, author, available);
+        }
+    }
+
+    /**
+     * Doc ids containing a term, kept sorted, with the fields the term occurs in.
+     */
+    private static final class Postings {
+        final int term;
+        long[] ids = new long[2];
+        byte[] masks = new byte[2];
+        int size;
+
+        Postings(int term) {
+            this.term = term;
+        }
+
+        void add(long id, int mask) {
+            int at = size == 0 || ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                masks[at] |= (byte) mask;
+                return;
+            }
+            int insert = -(at + 1);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                masks = Arrays.copyOf(masks, size * 2);
+            }
+            System.arraycopy(ids, insert, ids, insert + 1, size - insert);
+            System.arraycopy(masks, insert, masks, insert + 1, size - insert);
+            ids[insert] = id;
+            masks[insert] = (byte) mask;
+            size++;
+        }
+    }
+
+    /**
+     * Docs still matching the query, in ascending id order, with their scores so far.
+     */
+    private static final class Candidates {
+        final long[] ids;
+        final float[] scores;
+        int size;
+
+        Candidates(int capacity) {
+            ids = new long[capacity];
+            scores = new float[capacity];
+        }
+
+        void add(long id, float score) {
+            ids[size] = id;
+            scores[size++] = score;
+        }
+    }
+
+    private record Hit(long id, float score) {}
+
+    private static final Comparator<Hit> RANKING = Comparator.comparingDouble(Hit::score).reversed()
+            .thenComparingLong(Hit::id);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexedBook[] books = new IndexedBook[1024];
+    private int size;
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private int nextTerm;
+
+    public void add(Long id, String isbn, String title, String author, boolean available) {
+        lock.writeLock().lock();
+        try {
+            int index = Math.toIntExact(id);
+            if (book(index) != null) {
+                return;
+            }
+            Map<String, Integer> fieldsByTerm = new LinkedHashMap<>();
+            collect(fieldsByTerm, Field.ISBN, isbn);
+            fieldsByTerm.merge(normalizeIsbn(isbn), Field.ISBN.mask, (a, b) -> a | b);
+            collect(fieldsByTerm, Field.TITLE, title);
+            collect(fieldsByTerm, Field.AUTHOR, author);
+
+            int[] bookTerms = new int[fieldsByTerm.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> term : fieldsByTerm.entrySet()) {
+                Postings postings = terms.computeIfAbsent(term.getKey(), t -> new Postings(nextTerm++));
+                postings.add(id, term.getValue());
+                bookTerms[i++] = postings.term << Field.BITS | term.getValue();
+            }
+            if (index >= books.length) {
+                books = Arrays.copyOf(books, Math.max(books.length * 2, index + 1));
+            }
+            books[index] = new IndexedBook(id, isbn, title, author, bookTerms, available);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setAvailable(Long id, boolean available) {
+        lock.readLock().lock();
+        try {
+            IndexedBook book = book(id);
+            if (book != null) {
+                book.available = available;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(books, null);
+            size = 0;
+            terms.clear();
+            nextTerm = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public ResultPage<BookSearchResponse> search(String query, int page, int size) {
+        List<String> tokens = List.copyOf(new LinkedHashSet<>(tokenize(query)));
+        if (tokens.isEmpty() || size < 1 || page < 0) {
+            return new ResultPage<>(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<TokenMatch> matches = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                TokenMatch match = expand(tokens.get(i), i == tokens.size() - 1);
+                if (match.terms().isEmpty()) {
+                    return new ResultPage<>(List.of(), 0);
+                }
+                matches.add(match);
+            }
+            // Start from the most selective token so later tokens only probe a few candidates.
+            matches.sort(Comparator.comparingLong(TokenMatch::postingsSize));
+
+            Candidates candidates = scan(matches.get(0));
+            for (int i = 1; i < matches.size() && candidates.size > 0; i++) {
+                narrow(candidates, matches.get(i));
+            }
+            return new ResultPage<>(topHits(candidates, page, size), candidates.size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private IndexedBook book(long id) {
+        return id >= 0 && id < books.length ? books[(int) id] : null;
+    }
+
+    private static void collect(Map<String, Integer> fieldsByTerm, Field field, String text) {
+        for (String token : tokenize(text)) {
+            fieldsByTerm.merge(token, field.mask, (a, b) -> a | b);
+        }
+    }
+
+    private record TermMatch(Postings postings, float factor) {}
+
+    private record TokenMatch(String token, boolean prefix, List<TermMatch> terms, long postingsSize) {}
+
+    // Terms a query token matches: itself and, for a long enough last token, every term it prefixes.
+    private TokenMatch expand(String token, boolean last) {
+        boolean prefix = last && token.length() >= MIN_PREFIX_LENGTH;
+        Map<String, Postings> candidates = prefix
+                ? terms.subMap(token, true, token + Character.MAX_VALUE, false)
+                : terms.subMap(token, true, token, true);
+
+        List<TermMatch> matches = new ArrayList<>();
+        long postingsSize = 0;
+        for (Map.Entry<String, Postings> term : candidates.entrySet()) {
+            matches.add(new TermMatch(term.getValue(), term.getKey().equals(token) ? 1f : 0.5f));
+            postingsSize += term.getValue().size;
+        }
+        return new TokenMatch(token, prefix, matches, postingsSize);
+    }
+
+    // Every doc in the token's postings, scored by its best matching term.
+    private Candidates scan(TokenMatch match) {
+        if (match.terms().size() == 1) {
+            TermMatch term = match.terms().get(0);
+            Postings postings = term.postings();
+            Candidates all = new Candidates(postings.size);
+            for (int i = 0; i < postings.size; i++) {
+                all.add(postings.ids[i], Field.score(postings.masks[i]) * term.factor());
+            }
+            return all;
+        }
+
+        // Several terms covering much of the catalog: mark each book's best term in a byte per id.
+        if (match.postingsSize() * DENSE_SCAN_RATIO > books.length) {
+            return scanDense(match);
+        }
+
+        // Several terms: sort all postings by id, with the exact-term flag and field mask in the low bits.
+        long[] entries = new long[Math.toIntExact(match.postingsSize())];
+        int n = 0;
+        for (TermMatch term : match.terms()) {
+            Postings postings = term.postings();
+            long exact = term.factor() == 1f ? EXACT_BIT : 0;
+            for (int i = 0; i < postings.size; i++) {
+                entries[n++] = postings.ids[i] << (Field.BITS + 1) | exact | postings.masks[i];
+            }
+        }
+        Arrays.sort(entries);
+
+        Candidates all = new Candidates(n);
+        for (long entry : entries) {
+            long id = entry >>> (Field.BITS + 1);
+            float score = termScore((int) entry & (FIELD_MASK | (int) EXACT_BIT));
+            if (all.size > 0 && all.ids[all.size - 1] == id) {
+                all.scores[all.size - 1] = Math.max(all.scores[all.size - 1], score);
+            } else {
+                all.add(id, score);
+            }
+        }
+        return all;
+    }
+
+    private Candidates scanDense(TokenMatch match) {
+        byte[] best = new byte[books.length];
+        for (TermMatch term : match.terms()) {
+            Postings postings = term.postings();
+            int exact = term.factor() == 1f ? (int) EXACT_BIT : 0;
+            for (int i = 0; i < postings.size; i++) {
+                int id = (int) postings.ids[i];
+                int code = exact | postings.masks[i];
+                if (best[id] == 0 || termScore(code) > termScore(best[id])) {
+                    best[id] = (byte) code;
+                }
+            }
+        }
+
+        Candidates all = new Candidates((int) Math.min(match.postingsSize(), books.length));
+        for (int id = 0; id < best.length; id++) {
+            if (best[id] != 0) {
+                all.add(id, termScore(best[id]));
+            }
+        }
+        return all;
+    }
+
+    // Score of a field mask with the exact-term flag above it.
+    private static float termScore(int code) {
+        return Field.score(code & FIELD_MASK) * ((code & EXACT_BIT) != 0 ? 1f : 0.5f);
+    }
+
+    // Keep only candidates that also match this token, adding its best term score; picks the cheapest way.
+    private void narrow(Candidates candidates, TokenMatch match) {
+        long probeCost = (long) candidates.size * match.terms().size();
+        long walkCost = match.postingsSize();
+        long verifyCost = (long) candidates.size * VERIFY_COST;
+        float[] best;
+        if (verifyCost < probeCost && verifyCost < walkCost) {
+            best = verify(candidates, match);
+        } else {
+            best = probeCost > walkCost ? walk(candidates, match.terms()) : probe(candidates, match.terms());
+        }
+
+        int kept = 0;
+        for (int i = 0; i < candidates.size; i++) {
+            if (best[i] > 0) {
+                candidates.ids[kept] = candidates.ids[i];
+                candidates.scores[kept++] = candidates.scores[i] + best[i];
+            }
+        }
+        candidates.size = kept;
+    }
+
+    // Binary search for each candidate in each term's postings.
+    private static float[] probe(Candidates candidates, List<TermMatch> matches) {
+        float[] best = new float[candidates.size];
+        for (int c = 0; c < candidates.size; c++) {
+            for (TermMatch match : matches) {
+                Postings postings = match.postings();
+                int at = Arrays.binarySearch(postings.ids, 0, postings.size, candidates.ids[c]);
+                if (at >= 0) {
+                    best[c] = Math.max(best[c], Field.score(postings.masks[at]) * match.factor());
+                }
+            }
+        }
+        return best;
+    }
+
+    // Binary search for each posting in the candidates; cheaper when the postings are the smaller side.
+    private static float[] walk(Candidates candidates, List<TermMatch> matches) {
+        float[] best = new float[candidates.size];
+        for (TermMatch match : matches) {
+            Postings postings = match.postings();
+            for (int i = 0; i < postings.size; i++) {
+                int at = Arrays.binarySearch(candidates.ids, 0, candidates.size, postings.ids[i]);
+                if (at >= 0) {
+                    best[at] = Math.max(best[at], Field.score(postings.masks[i]) * match.factor());
+                }
+            }
+        }
+        return best;
+    }
+
+    // Looks each candidate's own terms up among the token's; the cost does not grow with the terms a prefix covers.
+    private float[] verify(Candidates candidates, TokenMatch match) {
+        int exact = -1;
+        BitSet prefixed = new BitSet();
+        for (TermMatch term : match.terms()) {
+            prefixed.set(term.postings().term);
+            if (term.factor() == 1f) {
+                exact = term.postings().term;
+            }
+        }
+
+        float[] best = new float[candidates.size];
+        for (int c = 0; c < candidates.size; c++) {
+            for (int entry : books[(int) candidates.ids[c]].terms) {
+                int term = entry >>> Field.BITS;
+                if (term == exact) {
+                    best[c] = Math.max(best[c], Field.score(entry & FIELD_MASK));
+                } else if (prefixed.get(term)) {
+                    best[c] = Math.max(best[c], Field.score(entry & FIELD_MASK) * 0.5f);
+                }
+            }
+        }
+        return best;
+    }
+
+    private List<BookSearchResponse> topHits(Candidates candidates, int page, int size) {
+        long skip = (long) page * size;
+        if (skip >= candidates.size) {
+            return List.of();
+        }
+        long wanted = skip + size;
+        PriorityQueue<Hit> top = new PriorityQueue<>(RANKING.reversed());
+        for (int i = 0; i < candidates.size; i++) {
+            if (top.size() < wanted) {
+                top.add(new Hit(candidates.ids[i], candidates.scores[i]));
+            } else if (ranksAbove(candidates.ids[i], candidates.scores[i], top.peek())) {
+                top.poll();
+                top.add(new Hit(candidates.ids[i], candidates.scores[i]));
+            }
+        }
+
+        List<Hit> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        return ranked.stream()
+                .skip(skip)
+                .map(hit -> books[(int) hit.id()].toResponse())
+                .toList();
+    }
+
+    // Same order as RANKING, without building a Hit for every candidate.
+    private static boolean ranksAbove(long id, float score, Hit hit) {
+        return score > hit.score() || score == hit.score() && id < hit.id();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    // "978-1-23" is also indexed as "978123" so ISBNs match with or without hyphens.
+    private static String normalizeIsbn(String isbn) {
+        return TOKEN_SEPARATOR.matcher(isbn.toLowerCase(Locale.ROOT)).replaceAll("");
+    }
+}
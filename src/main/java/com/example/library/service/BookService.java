@@ -1,7 +1,11 @@
 package com.example.library.service;
 
+import com.example.library.dto.AvailabilityResponse;
 import com.example.library.dto.BookResponse;
+import com.example.library.dto.BookSearchResponse;
 import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.dto.CursorPage;
+import com.example.library.dto.ResultPage;
 import com.example.library.entity.Book;
 
 import java.util.List;
@@ -9,4 +13,8 @@ import java.util.List;
 public interface BookService {
      BookResponse create(Book book);
      List<BookWithBorrowerResponse> getAllBooks();
+     CursorPage<BookWithBorrowerResponse> getBooksPage(Long after, Integer limit);
+     ResultPage<BookSearchResponse> search(String query, Integer page, Integer size);
+     AvailabilityResponse countAvailable(String isbn);
+     CursorPage<BookResponse> getAvailableBooks(String isbn, Long after, Integer limit);
 }
@@ -1,7 +1,11 @@
 package com.example.library.service;
 
+import com.example.library.dto.BatchLoanResponse;
+import com.example.library.dto.BookResponse;
 import com.example.library.dto.BorrowerResponse;
+import com.example.library.dto.BorrowerSummaryResponse;
 import com.example.library.dto.BorrowerWithBooksResponse;
+import com.example.library.dto.CursorPage;
 import com.example.library.entity.Borrower;
 
 import java.util.List;
@@ -12,9 +16,19 @@ public interface BorrowerService {
 
     BorrowerWithBooksResponse findById(Long id);
 
+    BorrowerWithBooksResponse findById(Long id, int maxBooks);
+
+    CursorPage<BookResponse> getBorrowerBooks(Long borrowerId, Long after, Integer limit);
+
     List<BorrowerWithBooksResponse> getAllBorrowers();
 
+    CursorPage<BorrowerSummaryResponse> getBorrowerSummaries(Long after, Integer limit);
+
     BorrowerResponse borrow(Long borrowerId, Long bookId);
 
     BorrowerResponse returnBook(Long borrowerId, Long bookId);
+
+    BatchLoanResponse borrowAll(Long borrowerId, List<Long> bookIds, boolean allOrNothing);
+
+    BatchLoanResponse returnAll(Long borrowerId, List<Long> bookIds, boolean allOrNothing);
 }
@@ -0,0 +1,11 @@
+package com.example.library.service;
+
+import com.example.library.dto.BulkBookResponse;
+import com.example.library.entity.Book;
+
+import java.util.List;
+
+public interface BulkBookService {
+
+    BulkBookResponse createAll(List<Book> books);
+}
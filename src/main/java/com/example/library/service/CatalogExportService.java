@@ -0,0 +1,9 @@
+package com.example.library.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface CatalogExportService {
+
+    long exportBooks(OutputStream out) throws IOException;
+}
@@ -1,26 +1,59 @@
 package com.example.library.service.impl;
 
+import com.example.library.availability.AvailabilityIndex;
+import com.example.library.cache.IsbnTitleCache;
+import com.example.library.cache.ViewVersions;
+import com.example.library.dto.AvailabilityResponse;
 import com.example.library.dto.BookResponse;
+import com.example.library.dto.BookSearchResponse;
 import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.dto.BookWithBorrowerRow;
+import com.example.library.dto.CursorPage;
+import com.example.library.dto.IsbnTitleAuthor;
+import com.example.library.dto.ResultPage;
 import com.example.library.entity.Book;
+import com.example.library.event.BookRegisteredEvent;
 import com.example.library.exception.DuplicateIsbnException;
 import com.example.library.mapper.Mapper;
 import com.example.library.repository.BookRepository;
 import com.example.library.repository.BorrowerRepository;
+import com.example.library.search.BookSearchIndex;
 import com.example.library.service.BookService;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
 import java.util.List;
 
 @Service
+@Timed(value = "library.service", description = "Service operation latency, tagged by class and method")
 public class BookServiceImpl implements BookService {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+
     private final BookRepository bookRepository;
     private final BorrowerRepository borrowerRepository;
+    private final IsbnTitleCache isbnTitleCache;
+    private final BookSearchIndex bookSearchIndex;
+    private final AvailabilityIndex availabilityIndex;
+    private final ViewVersions viewVersions;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public BookServiceImpl(BookRepository bookRepository, BorrowerRepository borrowerRepository) {
+    public BookServiceImpl(BookRepository bookRepository, BorrowerRepository borrowerRepository,
+                           IsbnTitleCache isbnTitleCache, BookSearchIndex bookSearchIndex,
+                           AvailabilityIndex availabilityIndex, ViewVersions viewVersions,
+                           ApplicationEventPublisher eventPublisher) {
         this.bookRepository = bookRepository;
         this.borrowerRepository = borrowerRepository;
+        this.isbnTitleCache = isbnTitleCache;
+        this.bookSearchIndex = bookSearchIndex;
+        this.availabilityIndex = availabilityIndex;
+        this.viewVersions = viewVersions;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -28,17 +61,19 @@ public class BookServiceImpl implements BookService {
      */
     @Override
     public BookResponse create(Book book) {
-        List<Book> sameIsbn = bookRepository.findByIsbn(book.getIsbn());
-
-        boolean mismatchExists = sameIsbn.stream().anyMatch(existing ->
-                !existing.getTitle().equals(book.getTitle()) ||
-                        !existing.getAuthor().equals(book.getAuthor()));
+        boolean mismatchExists = isbnTitleCache.find(book.getIsbn())
+                .filter(existing -> !existing.matches(book.getTitle(), book.getAuthor()))
+                .isPresent();
 
         if (mismatchExists) {
             throw new DuplicateIsbnException("ISBN already exists with different title/author");
         }
 
         Book createdBook = bookRepository.save(book);
+        isbnTitleCache.register(new IsbnTitleAuthor(createdBook.getIsbn(), createdBook.getTitle(), createdBook.getAuthor()));
+        eventPublisher.publishEvent(new BookRegisteredEvent(createdBook.getId(), createdBook.getIsbn(),
+                createdBook.getTitle(), createdBook.getAuthor()));
+        viewVersions.catalogChanged();
         return Mapper.toBookResponse(createdBook); // no borrower
     }
 
@@ -46,9 +81,70 @@ public class BookServiceImpl implements BookService {
      * Get all books with borrower info (if any).
      */
     @Override
+    @Transactional(readOnly = true)
     public List<BookWithBorrowerResponse> getAllBooks() {
-        return bookRepository.findAll().stream()
+        return bookRepository.findAllRowsWithBorrower().stream()
+                .map(Mapper::toBookWithBorrowerResponse)
+                .toList();
+    }
+
+    /**
+     * Get one keyset page of books ordered by id, starting after the given cursor.
+     * One extra row is fetched to tell whether another page exists.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BookWithBorrowerResponse> getBooksPage(Long after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        long cursor = after == null ? 0L : after;
+
+        List<BookWithBorrowerRow> rows = bookRepository.findRowPageWithBorrower(cursor, PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<BookWithBorrowerResponse> books = rows.stream()
+                .limit(pageSize)
                 .map(Mapper::toBookWithBorrowerResponse)
                 .toList();
+        Long nextCursor = hasMore ? books.get(books.size() - 1).id() : null;
+        return new CursorPage<>(books, nextCursor);
+    }
+
+    /**
+     * Full-text search over title, author and ISBN, served from the in-memory index.
+     */
+    @Override
+    public ResultPage<BookSearchResponse> search(String query, Integer page, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return bookSearchIndex.search(query, page == null ? 0 : Math.max(0, page), pageSize);
+    }
+
+    /**
+     * Total and available copies of an ISBN, served from the availability index.
+     */
+    @Override
+    public AvailabilityResponse countAvailable(String isbn) {
+        return availabilityIndex.count(isbn);
+    }
+
+    /**
+     * One keyset page of available books (optionally of one ISBN). Ids come from the
+     * availability index; only the page itself is loaded, by primary key. A copy borrowed
+     * since the index was read is left out, so a page may come back short.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BookResponse> getAvailableBooks(String isbn, Long after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Long> ids = availabilityIndex.availableIds(isbn, after == null ? 0L : after, pageSize + 1);
+
+        boolean hasMore = ids.size() > pageSize;
+        List<Long> pageIds = hasMore ? ids.subList(0, pageSize) : ids;
+        List<BookResponse> books = bookRepository.findAllById(pageIds).stream()
+                .filter(book -> book.getBorrower() == null)
+                .sorted(Comparator.comparing(Book::getId))
+                .map(Mapper::toBookResponse)
+                .toList();
+        Long nextCursor = hasMore ? pageIds.get(pageSize - 1) : null;
+        return new CursorPage<>(books, nextCursor);
     }
 }
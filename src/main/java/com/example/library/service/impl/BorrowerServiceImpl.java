@@ -1,68 +1,221 @@
 package com.example.library.service.impl;
 
+import com.example.library.cache.BorrowerViewCache;
+import com.example.library.cache.ViewVersions;
+import com.example.library.concurrency.StripedLoanExecutor;
+import com.example.library.dto.BatchLoanItemResponse;
+import com.example.library.dto.BatchLoanResponse;
 import com.example.library.dto.BookResponse;
+import com.example.library.dto.BookWithBorrowerRow;
 import com.example.library.dto.BorrowerResponse;
+import com.example.library.dto.BorrowerSummaryResponse;
 import com.example.library.dto.BorrowerWithBooksResponse;
+import com.example.library.dto.CursorPage;
 import com.example.library.entity.Book;
 import com.example.library.entity.Borrower;
+import com.example.library.event.BookBorrowedEvent;
+import com.example.library.event.BookReturnedEvent;
 import com.example.library.exception.*;
 import com.example.library.mapper.Mapper;
+import com.example.library.registration.BorrowerEmailFilter;
 import com.example.library.repository.BookRepository;
 import com.example.library.repository.BorrowerRepository;
+import com.example.library.routing.ReadRouting;
 import com.example.library.service.BorrowerService;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
+@Timed(value = "library.service", description = "Service operation latency, tagged by class and method")
 public class BorrowerServiceImpl implements BorrowerService {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+
     private final BorrowerRepository borrowerRepository;
     private final BookRepository bookRepository;
+    private final StripedLoanExecutor loanExecutor;
+    private final BorrowerViewCache borrowerViewCache;
+    private final ViewVersions viewVersions;
+    private final BorrowerEmailFilter emailFilter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean atomicUpdate;
 
-    public BorrowerServiceImpl(BorrowerRepository borrowerRepository, BookRepository bookRepository) {
+    public BorrowerServiceImpl(BorrowerRepository borrowerRepository, BookRepository bookRepository,
+                               StripedLoanExecutor loanExecutor, BorrowerViewCache borrowerViewCache,
+                               ViewVersions viewVersions, BorrowerEmailFilter emailFilter,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${library.loans.atomic-update:true}") boolean atomicUpdate) {
         this.borrowerRepository = borrowerRepository;
         this.bookRepository = bookRepository;
+        this.loanExecutor = loanExecutor;
+        this.borrowerViewCache = borrowerViewCache;
+        this.viewVersions = viewVersions;
+        this.emailFilter = emailFilter;
+        this.eventPublisher = eventPublisher;
+        this.atomicUpdate = atomicUpdate;
     }
 
     /**
      * Register a new borrower — return borrower only, no books.
+     * The existence query only runs for emails the filter may have seen; the unique
+     * constraint on email decides in the end, also between concurrent registrations.
+     * Both existence queries read the primary, which replicas may trail.
      */
     @Override
     public BorrowerResponse create(Borrower borrower) {
-        if (borrowerRepository.existsByEmail(borrower.getEmail())) {
-            throw new DuplicateBorrowerException("Email already exists: " + borrower.getEmail());
+        String email = borrower.getEmail();
+        if (emailFilter.mightContain(email) && ReadRouting.onPrimary(() -> borrowerRepository.existsByEmail(email))) {
+            throw new DuplicateBorrowerException("Email already exists: " + email);
+        }
+        Borrower saved;
+        try {
+            saved = borrowerRepository.save(borrower);
+        } catch (DataIntegrityViolationException ex) {
+            // Only a rejected insert pays for this lookup, which tells a lost race from any other violation.
+            if (ReadRouting.onPrimary(() -> borrowerRepository.existsByEmail(email))) {
+                throw new DuplicateBorrowerException("Email already exists: " + email);
+            }
+            throw ex;
         }
-        Borrower saved = borrowerRepository.save(borrower);
+        emailFilter.add(email);
+        viewVersions.borrowerChanged(saved.getId());
         return Mapper.toBorrowerResponse(saved, null,null);
     }
 
     /**
-     * Get borrower by ID — return with their books.
+     * Get borrower by ID — return with their books. Served from the view cache; a miss
+     * runs one projection query in the repository's read-only transaction.
      */
     @Override
     public BorrowerWithBooksResponse findById(Long id) {
-        Borrower borrower = borrowerRepository.findById(id)
+        return borrowerViewCache.get(id, this::loadBorrowerView);
+    }
+
+    /**
+     * Get borrower by ID with only their first {@code maxBooks} books (by id) and the total
+     * they hold, taken from the loan counter. Two indexed queries; not cached.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public BorrowerWithBooksResponse findById(Long id, int maxBooks) {
+        BorrowerSummaryResponse borrower = borrowerRepository.findSummaryById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Borrower not found with id " + id));
-        return Mapper.toBorrowerWithBooksResponse(borrower);
+        int pageSize = Math.max(0, Math.min(maxBooks, MAX_PAGE_SIZE));
+        List<BookResponse> books = pageSize == 0
+                ? List.of()
+                : bookRepository.findPageByBorrowerId(id, 0L, PageRequest.of(0, pageSize));
+        return new BorrowerWithBooksResponse(borrower.id(), borrower.name(), borrower.email(), books, borrower.loanCount());
+    }
+
+    /**
+     * Get one keyset page of the books a borrower holds, ordered by book id.
+     * An empty page is checked against the borrower table, so unknown borrowers are a 404.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BookResponse> getBorrowerBooks(Long borrowerId, Long after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<BookResponse> rows = bookRepository.findPageByBorrowerId(borrowerId, after == null ? 0L : after,
+                PageRequest.of(0, pageSize + 1));
+        if (rows.isEmpty() && !borrowerRepository.existsById(borrowerId)) {
+            throw new ResourceNotFoundException("Borrower not found with id " + borrowerId);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<BookResponse> books = hasMore ? rows.subList(0, pageSize) : rows;
+        Long nextCursor = hasMore ? books.get(books.size() - 1).id() : null;
+        return new CursorPage<>(books, nextCursor);
+    }
+
+    private BorrowerWithBooksResponse loadBorrowerView(Long id) {
+        List<BorrowerWithBooksResponse> borrower = Mapper.toBorrowerWithBooksResponses(borrowerRepository.findRowsWithBooksById(id));
+        if (borrower.isEmpty()) {
+            throw new ResourceNotFoundException("Borrower not found with id " + id);
+        }
+        return borrower.get(0);
     }
 
     /**
      * Get all borrowers — with their books.
      */
     @Override
+    @Transactional(readOnly = true)
     public List<BorrowerWithBooksResponse> getAllBorrowers() {
-        return borrowerRepository.findAll().stream()
-                .map(Mapper::toBorrowerWithBooksResponse)
-                .toList();
+        return Mapper.toBorrowerWithBooksResponses(borrowerRepository.findAllRowsWithBooks());
+    }
+
+    /**
+     * Get one keyset page of borrowers with their loan counts, ordered by id.
+     * One extra row is fetched to tell whether another page exists.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<BorrowerSummaryResponse> getBorrowerSummaries(Long after, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<BorrowerSummaryResponse> rows = borrowerRepository.findSummaryPage(after == null ? 0L : after,
+                PageRequest.of(0, pageSize + 1));
+
+        boolean hasMore = rows.size() > pageSize;
+        List<BorrowerSummaryResponse> borrowers = hasMore ? rows.subList(0, pageSize) : rows;
+        Long nextCursor = hasMore ? borrowers.get(borrowers.size() - 1).id() : null;
+        return new CursorPage<>(borrowers, nextCursor);
     }
 
     /**
      * Borrow a book — return borrower with only that book.
+     * Runs under the book's lock stripe, in its own transaction, retried on conflicts;
+     * the borrower's loan count moves in that same transaction.
      */
     @Override
     public BorrowerResponse borrow(Long borrowerId, Long bookId) {
+        BorrowerResponse borrowed = loanExecutor.execute(bookId, () -> {
+            BorrowerResponse response = atomicUpdate
+                    ? claimBook(borrowerId, bookId)
+                    : loadCheckAndBorrow(borrowerId, bookId);
+            borrowerRepository.adjustLoanCount(borrowerId, 1);
+            eventPublisher.publishEvent(new BookBorrowedEvent(bookId, borrowerId));
+            return response;
+        });
+        borrowerViewCache.invalidate(borrowerId);
+        viewVersions.borrowerChanged(borrowerId); // only once the cached view is gone
+        return borrowed;
+    }
+
+    /**
+     * Borrow with one conditional UPDATE, then one select for the response. Only when no
+     * row changed are the borrower and book looked up again, to report why.
+     */
+    private BorrowerResponse claimBook(Long borrowerId, Long bookId) {
+        if (bookRepository.claim(bookId, borrowerId) == 0) {
+            if (!borrowerRepository.existsById(borrowerId)) {
+                throw new ResourceNotFoundException("Borrower not found");
+            }
+            if (!bookRepository.existsById(bookId)) {
+                throw new ResourceNotFoundException("Book not found");
+            }
+            throw new BookAlreadyBorrowedException("Book already borrowed");
+        }
+
+        BookWithBorrowerRow row = bookRepository.findLoanRow(bookId, borrowerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Book not found"));
+        return Mapper.toBorrowerResponse(row, "Book Borrowed Successfully");
+    }
+
+    private BorrowerResponse loadCheckAndBorrow(Long borrowerId, Long bookId) {
         Borrower borrower = borrowerRepository.findById(borrowerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Borrower not found"));
 
@@ -76,7 +229,8 @@ public class BorrowerServiceImpl implements BorrowerService {
         book.setBorrower(borrower);
 
         try {
-            Book borrowedBook = bookRepository.save(book);
+            // flush inside the try so a version conflict surfaces here, not at commit
+            Book borrowedBook = bookRepository.saveAndFlush(book);
             BookResponse bookResponse = Mapper.toBookResponse(borrowedBook);
             return Mapper.toBorrowerResponse(borrower,bookResponse,"Book Borrowed Successfully");
 
@@ -85,11 +239,150 @@ public class BorrowerServiceImpl implements BorrowerService {
         }
     }
 
+    /**
+     * Borrow several books at once: the borrower is read once, the books are locked and
+     * checked with one select and claimed with one UPDATE, all in one transaction.
+     * Each book is judged as if borrowed one by one in request order.
+     */
+    @Override
+    public BatchLoanResponse borrowAll(Long borrowerId, List<Long> bookIds, boolean allOrNothing) {
+        return applyBatch(borrowerId, bookIds, allOrNothing, true);
+    }
+
+    /**
+     * Return several books at once, the same way as {@link #borrowAll}.
+     */
+    @Override
+    public BatchLoanResponse returnAll(Long borrowerId, List<Long> bookIds, boolean allOrNothing) {
+        return applyBatch(borrowerId, bookIds, allOrNothing, false);
+    }
+
+    private BatchLoanResponse applyBatch(Long borrowerId, List<Long> bookIds, boolean allOrNothing, boolean borrow) {
+        Set<Long> distinctIds = new LinkedHashSet<>(bookIds);
+        BatchLoanResponse result = loanExecutor.executeAll(distinctIds, () -> {
+            Borrower borrower = borrowerRepository.findById(borrowerId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Borrower not found"));
+
+            // Book id -> current borrower id (null when free); ids without a book are absent.
+            Map<Long, Long> holders = new HashMap<>();
+            bookRepository.lockLoanStates(distinctIds).forEach(state -> holders.put(state.id(), state.borrowerId()));
+
+            List<BatchLoanItemResponse> items = new ArrayList<>(bookIds.size());
+            List<Long> accepted = new ArrayList<>();
+            for (int i = 0; i < bookIds.size(); i++) {
+                Long bookId = bookIds.get(i);
+                RuntimeException rejection = borrow
+                        ? checkBorrow(holders, bookId)
+                        : checkReturn(holders, bookId, borrowerId);
+                if (rejection != null) {
+                    items.add(new BatchLoanItemResponse(i, bookId, BatchLoanItemResponse.Status.REJECTED,
+                            rejection.getClass().getSimpleName(), rejection.getMessage()));
+                    continue;
+                }
+                // A repeated id is then judged against the loan this batch just made or ended.
+                holders.put(bookId, borrow ? borrowerId : null);
+                accepted.add(bookId);
+                items.add(new BatchLoanItemResponse(i, bookId, borrow
+                        ? BatchLoanItemResponse.Status.BORROWED
+                        : BatchLoanItemResponse.Status.RETURNED, null, null));
+            }
+
+            int rejected = bookIds.size() - accepted.size();
+            if (allOrNothing && rejected > 0) {
+                items.replaceAll(item -> item.status() == BatchLoanItemResponse.Status.REJECTED ? item
+                        : new BatchLoanItemResponse(item.index(), item.bookId(), BatchLoanItemResponse.Status.NOT_APPLIED, null, null));
+                return new BatchLoanResponse(borrowerId, borrower.getName(), 0, rejected, items);
+            }
+            if (!accepted.isEmpty()) {
+                int updated = borrow
+                        ? bookRepository.claimAll(accepted, borrowerId)
+                        : bookRepository.releaseAll(accepted, borrowerId);
+                if (updated != accepted.size()) {
+                    throw new ConflictException("Books were updated by someone else, try again");
+                }
+                borrowerRepository.adjustLoanCount(borrowerId, borrow ? accepted.size() : -accepted.size());
+                accepted.forEach(bookId -> eventPublisher.publishEvent(borrow
+                        ? new BookBorrowedEvent(bookId, borrowerId)
+                        : new BookReturnedEvent(bookId, borrowerId)));
+            }
+            return new BatchLoanResponse(borrowerId, borrower.getName(), accepted.size(), rejected, items);
+        });
+        if (result.applied() > 0) {
+            borrowerViewCache.invalidate(borrowerId);
+            viewVersions.borrowerChanged(borrowerId);
+        }
+        return result;
+    }
+
+    // The exception borrow() would raise for this book, or null when it can be lent.
+    private static RuntimeException checkBorrow(Map<Long, Long> holders, Long bookId) {
+        if (!holders.containsKey(bookId)) {
+            return new ResourceNotFoundException("Book not found");
+        }
+        if (holders.get(bookId) != null) {
+            return new BookAlreadyBorrowedException("Book already borrowed");
+        }
+        return null;
+    }
+
+    // The exception returnBook() would raise for this book, or null when it can be returned.
+    private static RuntimeException checkReturn(Map<Long, Long> holders, Long bookId, Long borrowerId) {
+        if (!holders.containsKey(bookId)) {
+            return new ResourceNotFoundException("Book not found");
+        }
+        Long holder = holders.get(bookId);
+        if (holder == null) {
+            return new BookNotBorrowedException("This book has not been borrowed yet");
+        }
+        if (!holder.equals(borrowerId)) {
+            return new BookAlreadyReturnedException("This book is borrowed by another user or already returned");
+        }
+        return null;
+    }
+
     /**
      * Return a book — return borrower with only that returned book info.
+     * Runs under the book's lock stripe, in its own transaction, retried on conflicts;
+     * the borrower's loan count moves in that same transaction.
      */
     @Override
     public BorrowerResponse returnBook(Long borrowerId, Long bookId) {
+        BorrowerResponse returned = loanExecutor.execute(bookId, () -> {
+            BorrowerResponse response = atomicUpdate
+                    ? releaseBook(borrowerId, bookId)
+                    : loadCheckAndReturn(borrowerId, bookId);
+            borrowerRepository.adjustLoanCount(borrowerId, -1);
+            eventPublisher.publishEvent(new BookReturnedEvent(bookId, borrowerId));
+            return response;
+        });
+        borrowerViewCache.invalidate(borrowerId);
+        viewVersions.borrowerChanged(borrowerId);
+        return returned;
+    }
+
+    /**
+     * Return with one conditional UPDATE and one select for the response, falling back to
+     * lookups only to explain a miss.
+     */
+    private BorrowerResponse releaseBook(Long borrowerId, Long bookId) {
+        if (bookRepository.release(bookId, borrowerId) == 0) {
+            if (!borrowerRepository.existsById(borrowerId)) {
+                throw new ResourceNotFoundException("Borrower not found");
+            }
+            Book book = bookRepository.findById(bookId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Book not found"));
+            if (book.getBorrower() == null) {
+                throw new BookNotBorrowedException("This book has not been borrowed yet");
+            }
+            throw new BookAlreadyReturnedException("This book is borrowed by another user or already returned");
+        }
+
+        BookWithBorrowerRow row = bookRepository.findLoanRow(bookId, borrowerId)
+                .orElseThrow(() -> new ResourceNotFoundException("Book not found"));
+        return Mapper.toBorrowerResponse(row, "Book Returned Successfully");
+    }
+
+    private BorrowerResponse loadCheckAndReturn(Long borrowerId, Long bookId) {
         Borrower borrower = borrowerRepository.findById(borrowerId)
                 .orElseThrow(() -> new ResourceNotFoundException("Borrower not found"));
 
@@ -105,7 +398,7 @@ public class BorrowerServiceImpl implements BorrowerService {
         }
 
         book.setBorrower(null);
-        Book returnedBook = bookRepository.save(book);
+        Book returnedBook = bookRepository.saveAndFlush(book);
         BookResponse bookResponse = Mapper.toBookResponse(returnedBook);
 
         return Mapper.toBorrowerResponse(borrower,bookResponse,"Book Returned Successfully");
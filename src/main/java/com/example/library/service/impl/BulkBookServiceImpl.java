@@ -0,0 +1,117 @@
+package com.example.library.service.impl;
+
+import com.example.library.cache.ViewVersions;
+import com.example.library.dto.BulkBookItemResponse;
+import com.example.library.dto.BulkBookResponse;
+import com.example.library.dto.IsbnTitleAuthor;
+import com.example.library.entity.Book;
+import com.example.library.event.BookRegisteredEvent;
+import com.example.library.mapper.Mapper;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.BulkBookService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class BulkBookServiceImpl implements BulkBookService {
+
+    // Keeps the IN (...) list of the consistency lookup within what every database accepts.
+    static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final ViewVersions viewVersions;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public BulkBookServiceImpl(BookRepository bookRepository, EntityManager entityManager,
+                               ViewVersions viewVersions, ApplicationEventPublisher eventPublisher,
+                               @Value("${library.books.bulk.chunk-size:500}") int chunkSize) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.viewVersions = viewVersions;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Register many books at once. ISBN/title/author consistency is checked for the whole
+     * batch against the database with one set-based lookup, and against earlier items of
+     * the same batch. Accepted books are inserted as JDBC batches of {@code chunkSize}.
+     */
+    @Override
+    @Transactional
+    public BulkBookResponse createAll(List<Book> books) {
+        Map<String, IsbnTitleAuthor> known = findRegisteredIsbns(books);
+
+        List<BulkBookItemResponse> items = new ArrayList<>(books.size());
+        List<Book> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            IsbnTitleAuthor existing = known.putIfAbsent(book.getIsbn(),
+                    new IsbnTitleAuthor(book.getIsbn(), book.getTitle(), book.getAuthor()));
+
+            if (existing != null && !existing.matches(book.getTitle(), book.getAuthor())) {
+                items.add(new BulkBookItemResponse(i, BulkBookItemResponse.Status.REJECTED, null,
+                        "ISBN already exists with different title/author"));
+            } else {
+                items.add(null);
+                accepted.add(book);
+                acceptedIndexes.add(i);
+            }
+        }
+
+        insertInChunks(accepted);
+
+        for (int i = 0; i < accepted.size(); i++) {
+            Book book = accepted.get(i);
+            eventPublisher.publishEvent(new BookRegisteredEvent(book.getId(), book.getIsbn(), book.getTitle(), book.getAuthor()));
+
+            int index = acceptedIndexes.get(i);
+            items.set(index, new BulkBookItemResponse(index, BulkBookItemResponse.Status.CREATED,
+                    Mapper.toBookResponse(book), null));
+        }
+        if (!accepted.isEmpty()) {
+            viewVersions.catalogChanged(); // applied on commit
+        }
+        return new BulkBookResponse(accepted.size(), books.size() - accepted.size(), items);
+    }
+
+    private Map<String, IsbnTitleAuthor> findRegisteredIsbns(List<Book> books) {
+        List<String> isbns = new ArrayList<>(new LinkedHashSet<>(books.stream().map(Book::getIsbn).toList()));
+
+        Map<String, IsbnTitleAuthor> known = new HashMap<>();
+        for (int from = 0; from < isbns.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = isbns.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, isbns.size()));
+            bookRepository.findTitleAuthorByIsbnIn(chunk)
+                    .forEach(row -> known.putIfAbsent(row.isbn(), row));
+        }
+        return known;
+    }
+
+    private void insertInChunks(List<Book> books) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(chunkSize);
+
+        for (int i = 0; i < books.size(); i++) {
+            entityManager.persist(books.get(i));
+            if ((i + 1) % chunkSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
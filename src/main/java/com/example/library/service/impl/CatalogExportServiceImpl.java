@@ -0,0 +1,69 @@
+package com.example.library.service.impl;
+
+import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.entity.Book;
+import com.example.library.mapper.Mapper;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.CatalogExportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class CatalogExportServiceImpl implements CatalogExportService {
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter bookWriter;
+    private final int clearInterval;
+
+    public CatalogExportServiceImpl(BookRepository bookRepository, EntityManager entityManager, ObjectMapper objectMapper,
+                                    @Value("${library.export.clear-interval:1000}") int clearInterval) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.bookWriter = objectMapper.writerFor(BookWithBorrowerResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.clearInterval = clearInterval;
+    }
+
+    /**
+     * Write every book with its borrower as newline-delimited JSON, one row at a time.
+     * The first row is flushed straight away; after that the output and the persistence
+     * context are flushed/cleared every {@code clearInterval} rows so heap use stays flat.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBooks(OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<Book> books = bookRepository.streamAllWithBorrower();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            for (Iterator<Book> it = books.iterator(); it.hasNext(); ) {
+                bookWriter.writeValue(generator, Mapper.toBookWithBorrowerResponse(it.next()));
+                generator.writeRaw('\n');
+                count++;
+
+                if (count == 1 || count % clearInterval == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+            generator.flush();
+        }
+        return count;
+    }
+}
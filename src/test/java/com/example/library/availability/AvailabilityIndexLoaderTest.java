@@ -0,0 +1,51 @@
+package com.example.library.availability;
+
+import com.example.library.dto.AvailabilityResponse;
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.BorrowerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({AvailabilityIndex.class, AvailabilityIndexLoader.class})
+class AvailabilityIndexLoaderTest {
+
+    @Autowired
+    private AvailabilityIndex index;
+
+    @Autowired
+    private AvailabilityIndexLoader loader;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowerRepository borrowerRepository;
+
+    @Test
+    void afterSingletonsInstantiated_indexesEveryCopyWithItsAvailability() {
+        Borrower reader = borrowerRepository.save(new Borrower("Reader", "reader@x.com"));
+        Book free = bookRepository.save(new Book("ISBN-1", "Title", "Author"));
+        Book borrowed = new Book("ISBN-1", "Title", "Author");
+        borrowed.setBorrower(reader);
+        bookRepository.save(borrowed);
+        bookRepository.flush();
+
+        loader.afterSingletonsInstantiated();
+
+        assertEquals(new AvailabilityResponse("ISBN-1", 2, 1), index.count("ISBN-1"));
+        assertEquals(List.of(free.getId()), index.availableIds("ISBN-1", 0, 10));
+
+        // Every copy is known once loaded, so the next loan is applied rather than ignored.
+        index.setAvailable(free.getId(), false);
+        assertEquals(0, index.count("ISBN-1").available());
+    }
+}
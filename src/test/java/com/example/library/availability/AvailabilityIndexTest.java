@@ -0,0 +1,61 @@
+package com.example.library.availability;
+
+import com.example.library.dto.AvailabilityResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityIndexTest {
+
+    private AvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AvailabilityIndex();
+        index.add(1L, "ISBN-1", true);
+        index.add(5L, "ISBN-1", false);
+        index.add(3L, "ISBN-1", true);
+        index.add(2L, "ISBN-2", true);
+    }
+
+    @Test
+    void count_reportsCopiesAndAvailableCopiesPerIsbn() {
+        assertEquals(new AvailabilityResponse("ISBN-1", 3, 2), index.count("ISBN-1"));
+        assertEquals(new AvailabilityResponse("ISBN-9", 0, 0), index.count("ISBN-9"));
+    }
+
+    @Test
+    void setAvailable_tracksBorrowAndReturn() {
+        index.setAvailable(1L, false);
+        assertEquals(1, index.count("ISBN-1").available());
+
+        index.setAvailable(5L, true);
+        assertEquals(List.of(3L, 5L), index.availableIds("ISBN-1", 0, 10));
+    }
+
+    @Test
+    void setAvailable_ignoresUnknownIds() {
+        index.setAvailable(42L, true);
+
+        assertEquals(List.of(1L, 2L, 3L), index.availableIds(null, 0, 10));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void availableIds_pagesAfterCursor_withOrWithoutIsbn() {
+        assertEquals(List.of(1L, 2L), index.availableIds(null, 0, 2));
+        assertEquals(List.of(3L), index.availableIds(null, 2, 2));
+        assertEquals(List.of(3L), index.availableIds("ISBN-1", 1, 10));
+        assertTrue(index.availableIds("ISBN-9", 0, 10).isEmpty());
+    }
+
+    @Test
+    void add_isIdempotent() {
+        index.add(1L, "ISBN-1", false);
+
+        assertEquals(new AvailabilityResponse("ISBN-1", 3, 2), index.count("ISBN-1"));
+    }
+}
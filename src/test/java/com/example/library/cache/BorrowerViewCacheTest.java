@@ -0,0 +1,59 @@
+package com.example.library.cache;
+
+import com.example.library.dto.BorrowerWithBooksResponse;
+import com.example.library.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BorrowerViewCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BorrowerViewCache cache;
+    private AtomicInteger loads;
+    private Function<Long, BorrowerWithBooksResponse> loader;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new BorrowerViewCache(meterRegistry, 100, Duration.ZERO);
+        loads = new AtomicInteger();
+        loader = id -> new BorrowerWithBooksResponse(id, "Reader " + loads.incrementAndGet(), "r@x.com", List.of());
+    }
+
+    @Test
+    void get_loadsOnce_andCountsHitsAndMisses() {
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", BorrowerViewCache.NAME).tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", BorrowerViewCache.NAME).tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void invalidate_forcesReload() {
+        cache.get(1L, loader);
+        cache.invalidate(1L);
+
+        assertEquals("Reader 2", cache.get(1L, loader).name());
+    }
+
+    @Test
+    void get_failedLoad_isNotCached() {
+        assertThrows(ResourceNotFoundException.class, () -> cache.get(9L, id -> {
+            throw new ResourceNotFoundException("Borrower not found with id " + id);
+        }));
+
+        assertEquals("Reader 1", cache.get(9L, loader).name());
+    }
+}
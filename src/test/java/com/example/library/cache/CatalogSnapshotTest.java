@@ -0,0 +1,185 @@
+package com.example.library.cache;
+
+import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.feed.BookChangeFeed;
+import com.example.library.service.BookService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CatalogSnapshotTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong now = new AtomicLong();
+    private final List<BookWithBorrowerResponse> books = List.of(new BookWithBorrowerResponse(1L, "I1", "T1", "A1", null));
+
+    private BookService bookService;
+    private ViewVersions viewVersions;
+    private BookChangeFeed changeFeed;
+    private ScheduledExecutorService executor;
+    private SimpleMeterRegistry meterRegistry;
+    private CatalogSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        bookService = mock(BookService.class);
+        viewVersions = mock(ViewVersions.class);
+        executor = mock(ScheduledExecutorService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = mock(Clock.class);
+        when(clock.millis()).thenAnswer(invocation -> now.get());
+        when(bookService.getAllBooks()).thenReturn(books);
+        when(viewVersions.catalogETag()).thenReturn("\"e1\"");
+        changeFeed = mock(BookChangeFeed.class);
+        when(changeFeed.currentEventId()).thenReturn("epoch-4");
+        snapshot = new CatalogSnapshot(bookService, viewVersions, changeFeed, objectMapper, meterRegistry, executor, clock,
+                Duration.ofMillis(200), Duration.ofSeconds(5));
+    }
+
+    @Test
+    void rebuild_storesJsonGzipAndETag_andRecordsMetrics() throws Exception {
+        snapshot.load();
+        runScheduled();
+
+        CatalogSnapshot.Snapshot current = snapshot.current();
+        assertNotNull(current);
+        assertArrayEquals(objectMapper.writeValueAsBytes(books), current.json());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(current.gzip()))) {
+            assertArrayEquals(current.json(), in.readAllBytes());
+        }
+        assertEquals("\"e1\"", current.etag());
+        assertEquals("epoch-4", current.changeEventId());
+        assertEquals(1, meterRegistry.get(CatalogSnapshot.REBUILD_METRIC).timer().count());
+        assertEquals(current.json().length,
+                meterRegistry.get(CatalogSnapshot.SIZE_METRIC).tag("encoding", "identity").gauge().value());
+    }
+
+    @Test
+    void changes_areCoalescedIntoOneRebuild() {
+        snapshot.changed();
+        snapshot.changed();
+        snapshot.changed();
+
+        verify(executor, times(1)).schedule(any(Runnable.class), eq(200L), eq(TimeUnit.MILLISECONDS));
+        now.set(200);
+        runScheduled();
+        verify(bookService, times(1)).getAllBooks();
+    }
+
+    @Test
+    void rebuild_waitsForWritesToSettle() {
+        snapshot.changed();
+        now.set(150);
+        snapshot.changed();
+        now.set(200);
+
+        runScheduled();
+
+        verifyNoInteractions(bookService);
+        verify(executor).schedule(any(Runnable.class), eq(150L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void writeDuringRebuild_keepsSnapshotStale_andServedOnlyUpToMaxStaleness() {
+        now.set(100);
+        snapshot.changed();
+        now.set(300);
+        when(bookService.getAllBooks()).thenAnswer(invocation -> {
+            snapshot.changed();
+            return books;
+        });
+        runScheduled();
+
+        now.set(5_100);
+        assertNotNull(snapshot.current());
+        now.set(5_101);
+        assertNull(snapshot.current());
+
+        doReturn(books).when(bookService).getAllBooks();
+        runScheduled();
+        assertNotNull(snapshot.current());
+    }
+
+    @Test
+    void oldSnapshot_isNotServed_andRefreshed() {
+        snapshot.load();
+        runScheduled();
+        now.set(5_001);
+
+        assertNull(snapshot.current());
+        runScheduled();
+        assertNotNull(snapshot.current());
+        verify(bookService, times(2)).getAllBooks();
+    }
+
+    @Test
+    void noSnapshotYet_requestsABuild() {
+        assertNull(snapshot.current());
+
+        verify(executor).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+        runScheduled();
+        assertNotNull(snapshot.current());
+    }
+
+    @Test
+    void failedRebuild_isRetriedWithBackoff_untilItSucceeds() {
+        when(bookService.getAllBooks()).thenThrow(new IllegalStateException("database down"));
+        snapshot.load();
+        runScheduled();
+
+        assertNull(snapshot.current());
+        verify(executor).schedule(any(Runnable.class), eq(5_000L), eq(TimeUnit.MILLISECONDS));
+        runScheduled();
+        verify(executor).schedule(any(Runnable.class), eq(10_000L), eq(TimeUnit.MILLISECONDS));
+        // Reads while the retry is pending do not bring it forward.
+        assertNull(snapshot.current());
+        verify(executor, times(1)).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+
+        doReturn(books).when(bookService).getAllBooks();
+        runScheduled();
+        assertNotNull(snapshot.current());
+    }
+
+    @Test
+    void gzipETag_isADifferentStrongETag() {
+        CatalogSnapshot.Snapshot built = new CatalogSnapshot.Snapshot(new byte[0], new byte[0], "\"a-1-2\"", "epoch-4", 0L);
+
+        assertEquals("\"a-1-2-gzip\"", built.gzipETag());
+    }
+
+    @Test
+    void disabled_neverServesOrSchedules() {
+        CatalogSnapshot disabled = new CatalogSnapshot(bookService, viewVersions, changeFeed, objectMapper, meterRegistry, null,
+                Clock.systemUTC(), Duration.ofMillis(200), Duration.ofSeconds(5));
+
+        disabled.load();
+        disabled.changed();
+
+        assertNull(disabled.current());
+        verifyNoInteractions(bookService, executor);
+    }
+
+    // Runs the most recently scheduled rebuild task, as the executor thread would.
+    private void runScheduled() {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor, atLeastOnce()).schedule(task.capture(), anyLong(), any());
+        task.getValue().run();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.library.cache;
+
+import com.example.library.dto.IsbnTitleAuthor;
+import com.example.library.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IsbnTitleCacheTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private IsbnTitleCache isbnTitleCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        isbnTitleCache = new IsbnTitleCache(bookRepository, 100);
+    }
+
+    @Test
+    void find_readsDatabaseOnce_thenServesFromMemory() {
+        IsbnTitleAuthor entry = new IsbnTitleAuthor("I1", "T1", "A1");
+        when(bookRepository.findFirstByIsbn("I1")).thenReturn(Optional.of(entry));
+
+        assertEquals(Optional.of(entry), isbnTitleCache.find("I1"));
+        assertEquals(Optional.of(entry), isbnTitleCache.find("I1"));
+
+        verify(bookRepository, times(1)).findFirstByIsbn("I1");
+    }
+
+    @Test
+    void find_unknownIsbn_isNotCached() {
+        when(bookRepository.findFirstByIsbn("I2")).thenReturn(Optional.empty());
+
+        assertTrue(isbnTitleCache.find("I2").isEmpty());
+        assertTrue(isbnTitleCache.find("I2").isEmpty());
+
+        verify(bookRepository, times(2)).findFirstByIsbn("I2");
+    }
+
+    @Test
+    void register_makesIsbnKnownWithoutQuery() {
+        isbnTitleCache.register(new IsbnTitleAuthor("I3", "T3", "A3"));
+
+        assertEquals("T3", isbnTitleCache.find("I3").orElseThrow().title());
+        verifyNoInteractions(bookRepository);
+    }
+}
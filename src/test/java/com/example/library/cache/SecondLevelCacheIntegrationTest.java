@@ -0,0 +1,127 @@
+package com.example.library.cache;
+
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.metrics.SqlStatementCounter;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.BorrowerRepository;
+import com.example.library.service.BorrowerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * With the second-level cache on, borrower lookups are answered from the cache, and the
+ * conditional UPDATEs leave no stale book or borrower-books entries behind.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:l2cache;DB_CLOSE_DELAY=-1",
+        "library.l2cache.enabled=true"
+})
+class SecondLevelCacheIntegrationTest {
+
+    private static final String BORROWER_BOOKS_ROLE = Borrower.class.getName() + ".books";
+
+    @Autowired
+    private BorrowerService borrowerService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowerRepository borrowerRepository;
+
+    @Autowired
+    private SqlStatementCounter statementCounter;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long borrowerId;
+    private Long firstBookId;
+    private Long secondBookId;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        borrowerRepository.deleteAll();
+        borrowerId = borrowerRepository.save(new Borrower("Reader", "reader@x.com")).getId();
+        firstBookId = bookRepository.save(new Book("ISBN-1", "Title", "Author")).getId();
+        secondBookId = bookRepository.save(new Book("ISBN-2", "Title", "Author")).getId();
+    }
+
+    @Test
+    void borrowerLookups_areAnsweredFromCache() {
+        borrowerRepository.findById(borrowerId);
+        assertTrue(entityManagerFactory.getCache().contains(Borrower.class, borrowerId));
+
+        statementCounter.reset();
+        assertEquals("Reader", borrowerRepository.findById(borrowerId).orElseThrow().getName());
+
+        assertEquals(0, statementCounter.count());
+        assertTrue(gets("borrowers", "hit") >= 1);
+        assertTrue(meterRegistry.get(SecondLevelCacheConfig.HIT_RATIO_METRIC).tag("cache", "borrowers").gauge().value() > 0);
+    }
+
+    @Test
+    void borrow_costsTwoUpdatesAndOneSelect() {
+        borrowerService.borrow(borrowerId, firstBookId);
+
+        statementCounter.reset();
+        borrowerService.borrow(borrowerId, secondBookId);
+
+        // The conditional UPDATE, the loan count UPDATE and the joined select for the response.
+        assertEquals(3, statementCounter.count());
+    }
+
+    @Test
+    void borrow_evictsOnlyTheBookAndTheBorrowersBooks() {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        bookRepository.findById(firstBookId);
+        bookRepository.findById(secondBookId);
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> borrowerRepository.findById(borrowerId).orElseThrow().getBooks().size());
+        assertTrue(cache.containsCollection(BORROWER_BOOKS_ROLE, borrowerId));
+
+        borrowerService.borrow(borrowerId, firstBookId);
+
+        assertFalse(cache.containsEntity(Book.class, firstBookId));
+        assertFalse(cache.containsCollection(BORROWER_BOOKS_ROLE, borrowerId));
+        assertTrue(cache.containsEntity(Book.class, secondBookId));
+        assertTrue(cache.containsEntity(Borrower.class, borrowerId));
+    }
+
+    @Test
+    void borrowAndReturn_leaveNoStaleBookEntries() {
+        borrowerRepository.findById(borrowerId);
+        borrowerService.borrow(borrowerId, firstBookId);
+        Book borrowed = bookRepository.findById(firstBookId).orElseThrow();
+        assertEquals(borrowerId, borrowed.getBorrower().getId());
+
+        borrowerService.returnBook(borrowerId, firstBookId);
+        Book returned = bookRepository.findById(firstBookId).orElseThrow();
+        assertNull(returned.getBorrower());
+        assertEquals(borrowed.getVersion() + 1, returned.getVersion());
+
+        assertTrue(entityManagerFactory.getCache().contains(Borrower.class, borrowerId));
+    }
+
+    private double gets(String region, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", region).tag("result", result).functionCounter().count();
+    }
+}
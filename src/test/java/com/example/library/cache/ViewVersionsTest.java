@@ -0,0 +1,79 @@
+package com.example.library.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViewVersionsTest {
+
+    private final ViewVersions versions = new ViewVersions(Duration.ZERO, Clock.systemUTC());
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void catalogChanged_movesCatalogETagOnly() {
+        String catalog = versions.catalogETag();
+        String borrower = versions.borrowerETag(1L);
+
+        versions.catalogChanged();
+
+        assertNotEquals(catalog, versions.catalogETag());
+        assertEquals(borrower, versions.borrowerETag(1L));
+    }
+
+    @Test
+    void borrowerChanged_movesThatBorrowerAndCatalog() {
+        String catalog = versions.catalogETag();
+        String one = versions.borrowerETag(1L);
+        String two = versions.borrowerETag(2L);
+
+        versions.borrowerChanged(1L);
+
+        assertNotEquals(catalog, versions.catalogETag());
+        assertNotEquals(one, versions.borrowerETag(1L));
+        assertEquals(two, versions.borrowerETag(2L));
+    }
+
+    @Test
+    void insideTransaction_bumpsOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        String before = versions.borrowerETag(1L);
+
+        versions.borrowerChanged(1L);
+        assertEquals(before, versions.borrowerETag(1L));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertNotEquals(before, versions.borrowerETag(1L));
+    }
+
+    @Test
+    void etags_rollOverEveryMaxStaleness() {
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+
+        assertEquals(window(start), window(start.plusSeconds(29)));
+        assertNotEquals(window(start), window(start.plusSeconds(30)));
+    }
+
+    @Test
+    void etags_differBetweenInstances() {
+        assertNotEquals(versions.catalogETag(), new ViewVersions(Duration.ZERO, Clock.systemUTC()).catalogETag());
+    }
+
+    private static String window(Instant now) {
+        String etag = new ViewVersions(Duration.ofSeconds(30), Clock.fixed(now, ZoneOffset.UTC)).catalogETag();
+        return etag.substring(etag.lastIndexOf('-') + 1);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.library.concurrency;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionLimitingDataSourceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DataSource pool;
+    private Connection pooled;
+    private ConnectionLimitingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        meterRegistry = new SimpleMeterRegistry();
+        ConnectionLimiter limiter = new ConnectionLimiter(1, Duration.ofMillis(50));
+        limiter.bindTo(meterRegistry);
+        pool = mock(DataSource.class);
+        pooled = mock(Connection.class);
+        when(pool.getConnection()).thenReturn(pooled);
+        dataSource = new ConnectionLimitingDataSource(pool, limiter);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    @Test
+    void getConnection_holdsPermitUntilClosed() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        assertEquals(1, gauge("library.datasource.permits.in-use"));
+
+        connection.setAutoCommit(false);
+        connection.close();
+        connection.close();
+
+        verify(pooled).setAutoCommit(false);
+        verify(pooled, times(2)).close();
+        assertEquals(0, gauge("library.datasource.permits.in-use"));
+        assertNotNull(dataSource.getConnection());
+    }
+
+    @Test
+    void getConnection_whenPermitsExhausted_failsFastWithoutTouchingThePool() throws SQLException {
+        dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        verify(pool, times(1)).getConnection();
+        assertEquals(1, meterRegistry.get("library.datasource.permits.rejected").functionCounter().count());
+    }
+
+    @Test
+    void getConnection_poolFailure_returnsPermit() throws SQLException {
+        when(pool.getConnection()).thenThrow(new SQLException("pool timeout")).thenReturn(pooled);
+
+        assertThrows(SQLException.class, () -> dataSource.getConnection());
+        assertEquals(0, gauge("library.datasource.permits.in-use"));
+        assertNotNull(dataSource.getConnection());
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.library.concurrency;
+
+import com.example.library.exception.BookAlreadyBorrowedException;
+import com.example.library.exception.ConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class StripedLoanExecutorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private StripedLoanExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new StripedLoanExecutor(mock(PlatformTransactionManager.class), meterRegistry,
+                4, Duration.ofMillis(100), 3, Duration.ofMillis(1), Duration.ofMillis(2));
+    }
+
+    private double retries(int stripe) {
+        return meterRegistry.get("library.loans.retries").tag("stripe", Integer.toString(stripe)).counter().count();
+    }
+
+    @Test
+    void execute_retriesOptimisticLockFailures_thenSucceeds() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = executor.execute(5L, () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("stale");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(3, calls.get());
+        assertEquals(2, retries(executor.stripeFor(5L)));
+    }
+
+    @Test
+    void execute_givesUpAfterMaxAttempts_withConflict() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(ConflictException.class, () -> executor.execute(5L, () -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        }));
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void execute_doesNotRetryBusinessExceptions() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThrows(BookAlreadyBorrowedException.class, () -> executor.execute(5L, () -> {
+            calls.incrementAndGet();
+            throw new BookAlreadyBorrowedException("taken");
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void execute_serializesSameBook_andTimesOutWaiters() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> owner = pool.submit(() -> executor.execute(7L, () -> {
+                holding.countDown();
+                await(release);
+                return null;
+            }));
+            assertTrue(holding.await(1, TimeUnit.SECONDS));
+
+            assertThrows(ConflictException.class, () -> executor.execute(7L, () -> "never"));
+            // a different stripe is not blocked
+            assertEquals("free", executor.execute(8L, () -> "free"));
+
+            release.countDown();
+            owner.get(1, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void executeAll_timesOutOnAnyHeldStripe_andReleasesTheOthers() throws Exception {
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> owner = pool.submit(() -> executor.execute(7L, () -> {
+                holding.countDown();
+                await(release);
+                return null;
+            }));
+            assertTrue(holding.await(1, TimeUnit.SECONDS));
+
+            assertThrows(ConflictException.class, () -> executor.executeAll(List.of(8L, 7L), () -> "never"));
+            assertEquals("free", executor.execute(8L, () -> "free"));
+
+            release.countDown();
+            owner.get(1, TimeUnit.SECONDS);
+            assertEquals("both", executor.executeAll(List.of(8L, 7L), () -> "both"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void executeAll_retriesOptimisticLockFailures_onEveryStripe() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = executor.executeAll(List.of(5L, 6L, 9L), () -> {
+            if (calls.incrementAndGet() < 2) {
+                throw new OptimisticLockingFailureException("stale");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        // 5 and 9 share a stripe: each distinct stripe counts the retry once
+        assertEquals(1, retries(executor.stripeFor(5L)));
+        assertEquals(1, retries(executor.stripeFor(6L)));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
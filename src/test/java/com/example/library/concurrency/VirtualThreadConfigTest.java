@@ -0,0 +1,37 @@
+package com.example.library.concurrency;
+
+import org.apache.coyote.ProtocolHandler;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VirtualThreadConfigTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void requestExecutor_runsEachTaskOnANamedVirtualThread() throws Exception {
+        ProtocolHandler protocolHandler = mock(ProtocolHandler.class);
+        TomcatProtocolHandlerCustomizer<ProtocolHandler> customizer =
+                (TomcatProtocolHandlerCustomizer<ProtocolHandler>) new VirtualThreadConfig().virtualThreadRequestExecutor();
+
+        customizer.customize(protocolHandler);
+
+        ArgumentCaptor<ExecutorService> executor = ArgumentCaptor.forClass(ExecutorService.class);
+        verify(protocolHandler).setExecutor(executor.capture());
+        try {
+            Thread first = executor.getValue().submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+            Thread second = executor.getValue().submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+            assertTrue(first.isVirtual());
+            assertTrue(first.getName().startsWith("http-vt-"), first::getName);
+            assertNotSame(first, second);
+        } finally {
+            executor.getValue().shutdown();
+        }
+    }
+}
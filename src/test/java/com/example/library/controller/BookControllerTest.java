@@ -1,26 +1,55 @@
 package com.example.library.controller;
 
+import com.example.library.cache.CatalogSnapshot;
+import com.example.library.cache.ViewVersions;
+import com.example.library.dto.AvailabilityResponse;
 import com.example.library.dto.BookResponse;
+import com.example.library.dto.BookSearchResponse;
 import com.example.library.dto.BookWithBorrowerResponse;
 import com.example.library.dto.BorrowerResponse;
+import com.example.library.dto.BulkBookItemResponse;
+import com.example.library.dto.BulkBookResponse;
+import com.example.library.dto.CursorPage;
+import com.example.library.dto.ResultPage;
+import com.example.library.feed.BookChangeFeed;
 import com.example.library.service.BookService;
+import com.example.library.service.BulkBookService;
+import com.example.library.service.CatalogExportService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 import java.util.List;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@WebMvcTest(controllers = BookController.class)
+@WebMvcTest(controllers = BookController.class, properties = "library.export.timeout=7m")
+@Import({SimpleMeterRegistry.class, ViewVersions.class})
 class BookControllerTest {
 
     @Autowired
@@ -29,6 +58,18 @@ class BookControllerTest {
     @MockBean
     private BookService bookService;
 
+    @MockBean
+    private BulkBookService bulkBookService;
+
+    @MockBean
+    private CatalogExportService catalogExportService;
+
+    @MockBean
+    private CatalogSnapshot catalogSnapshot;
+
+    @MockBean
+    private BookChangeFeed bookChangeFeed;
+
     @Test
     void createBook_returnsCreatedBook_withoutBorrower() throws Exception {
         BookResponse mock = new BookResponse(1L, "ISBN-1", "Title A", "Author A");
@@ -56,12 +97,210 @@ class BookControllerTest {
         BookWithBorrowerResponse b2 = new BookWithBorrowerResponse(2L, "I2", "T2", "A2", null);
 
         when(bookService.getAllBooks()).thenReturn(List.of(b1, b2));
+        when(bookChangeFeed.currentEventId()).thenReturn("epoch-9");
 
         mockMvc.perform(get("/api/books"))
                 .andExpect(status().isOk())
+                .andExpect(header().string(BookChangeFeed.POSITION_HEADER, "epoch-9"))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].id").value(1L))
                 .andExpect(jsonPath("$[0].borrower.id").value(10L))
                 .andExpect(jsonPath("$[1].borrower").doesNotExist());
+        // The position is read before the data, so resuming from it can only repeat changes.
+        InOrder order = inOrder(bookChangeFeed, bookService);
+        order.verify(bookChangeFeed).currentEventId();
+        order.verify(bookService).getAllBooks();
+    }
+
+    @Test
+    void getAllBooks_matchingETag_returns304WithoutLoading() throws Exception {
+        when(bookService.getAllBooks()).thenReturn(List.of());
+        String etag = mockMvc.perform(get("/api/books"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+        clearInvocations(bookService);
+
+        mockMvc.perform(get("/api/books").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void getAllBooks_fromSnapshot_sendsStoredBytes_gzippedWhenAccepted() throws Exception {
+        byte[] json = "[{\"id\":1}]".getBytes(StandardCharsets.UTF_8);
+        byte[] gzip = {31, -117, 8, 0};
+        when(catalogSnapshot.current()).thenReturn(new CatalogSnapshot.Snapshot(json, gzip, "\"s1\"", "epoch-3", 0L));
+
+        mockMvc.perform(get("/api/books"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"s1\""))
+                .andExpect(header().string(BookChangeFeed.POSITION_HEADER, "epoch-3"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().bytes(json));
+        mockMvc.perform(get("/api/books").header("Accept-Encoding", "br, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"s1-gzip\""))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(content().bytes(gzip));
+        mockMvc.perform(get("/api/books").header("Accept-Encoding", "gzip;q=0"))
+                .andExpect(content().bytes(json));
+        mockMvc.perform(get("/api/books").header("If-None-Match", "\"s1\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/books").header("Accept-Encoding", "gzip").header("If-None-Match", "\"s1-gzip\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"s1-gzip\""));
+        // The identity ETag does not validate a cached gzip body, nor the other way round.
+        mockMvc.perform(get("/api/books").header("Accept-Encoding", "gzip").header("If-None-Match", "\"s1\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(gzip));
+        mockMvc.perform(get("/api/books").header("If-None-Match", "\"s1-gzip\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(json));
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void getAllBooks_noConnectionAvailable_returns503() throws Exception {
+        when(bookService.getAllBooks()).thenThrow(new CannotCreateTransactionException("Could not open JPA EntityManager"));
+
+        mockMvc.perform(get("/api/books"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message").value("Database is busy, try again"));
+    }
+
+    @Test
+    void getAllBooks_withLimit_returnsPageAndNextCursorHeader() throws Exception {
+        BookWithBorrowerResponse b1 = new BookWithBorrowerResponse(6L, "I6", "T6", "A6", null);
+        when(bookService.getBooksPage(5L, 1)).thenReturn(new CursorPage<>(List.of(b1), 6L));
+
+        mockMvc.perform(get("/api/books").param("after", "5").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "6"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(6L));
+    }
+
+    @Test
+    void exportBooks_streamsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).when(catalogExportService).exportBooks(any());
+
+        MvcResult result = mockMvc.perform(get("/api/books/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(Duration.ofMinutes(7).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    void registerBooks_returnsPerItemResults() throws Exception {
+        BulkBookResponse mock = new BulkBookResponse(1, 1, List.of(
+                new BulkBookItemResponse(0, BulkBookItemResponse.Status.CREATED, new BookResponse(1L, "I1", "T1", "A1"), null),
+                new BulkBookItemResponse(1, BulkBookItemResponse.Status.REJECTED, null, "mismatch")));
+        when(bulkBookService.createAll(any())).thenReturn(mock);
+
+        mockMvc.perform(post("/api/books/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {"books":[
+                          {"isbn":"I1","title":"T1","author":"A1"},
+                          {"isbn":"I1","title":"Other","author":"A1"}
+                        ]}
+                        """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.items[0].book.id").value(1L))
+                .andExpect(jsonPath("$.items[1].status").value("REJECTED"));
+    }
+
+    @Test
+    void registerBooks_blankItem_returns400() throws Exception {
+        mockMvc.perform(post("/api/books/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                        {"books":[{"isbn":"","title":"T1","author":"A1"}]}
+                        """))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchBooks_returnsRankedHitsAndTotal() throws Exception {
+        when(bookService.search("spring", null, null)).thenReturn(new ResultPage<>(
+                List.of(new BookSearchResponse(3L, "I3", "Spring in Action", "Walls", true)), 7));
+
+        mockMvc.perform(get("/api/books/search").param("q", "spring"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(ResultPage.TOTAL_COUNT_HEADER, "7"))
+                .andExpect(jsonPath("$[0].title").value("Spring in Action"))
+                .andExpect(jsonPath("$[0].available").value(true));
+    }
+
+    @Test
+    void searchBooks_withoutQuery_returns400() throws Exception {
+        mockMvc.perform(get("/api/books/search"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAvailableBooks_returnsPageAndNextCursorHeader() throws Exception {
+        when(bookService.getAvailableBooks("I1", 4L, 1)).thenReturn(new CursorPage<>(
+                List.of(new BookResponse(5L, "I1", "T1", "A1")), 5L));
+
+        mockMvc.perform(get("/api/books/available").param("isbn", "I1").param("after", "4").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "5"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(5L));
+    }
+
+    @Test
+    void countAvailable_returnsCopiesAndAvailable() throws Exception {
+        when(bookService.countAvailable("I1")).thenReturn(new AvailabilityResponse("I1", 3, 1));
+
+        mockMvc.perform(get("/api/books/available/count").param("isbn", "I1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.copies").value(3))
+                .andExpect(jsonPath("$.available").value(1));
+    }
+
+    @Test
+    void streamChanges_resumesFromLastEventId_asEventStream() throws Exception {
+        SseEmitter emitter = new SseEmitter();
+        when(bookChangeFeed.subscribe("abc-41")).thenReturn(emitter);
+
+        MvcResult result = mockMvc.perform(get("/api/books/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header("Last-Event-ID", "abc-41"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        emitter.send(SseEmitter.event().id("abc-42").name("BOOK_BORROWED").data("{}"));
+        emitter.complete();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(containsString("id:abc-42")));
+    }
+
+    @Test
+    void streamChanges_tooManySubscribers_returns503() throws Exception {
+        when(bookChangeFeed.subscribe(null)).thenReturn(null);
+
+        mockMvc.perform(get("/api/books/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
     }
 }
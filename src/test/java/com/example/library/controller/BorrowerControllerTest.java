@@ -1,33 +1,51 @@
 package com.example.library.controller;
 
+import com.example.library.cache.ViewVersions;
+import com.example.library.dto.BatchLoanItemResponse;
+import com.example.library.dto.BatchLoanResponse;
 import com.example.library.dto.BookResponse;
 import com.example.library.dto.BorrowerResponse;
+import com.example.library.dto.BorrowerSummaryResponse;
 import com.example.library.dto.BorrowerWithBooksResponse;
+import com.example.library.dto.CursorPage;
 import com.example.library.exception.BookAlreadyBorrowedException;
 import com.example.library.exception.ResourceNotFoundException;
+import com.example.library.idempotency.IdempotencyStore;
 import com.example.library.service.BorrowerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = BorrowerController.class)
+@Import({SimpleMeterRegistry.class, ViewVersions.class, IdempotencyStore.class})
 class BorrowerControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ViewVersions viewVersions;
+
     @MockBean
     private BorrowerService borrowerService;
 
@@ -62,7 +80,27 @@ class BorrowerControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(1L))
                 .andExpect(jsonPath("$.books", hasSize(1)))
-                .andExpect(jsonPath("$.books[0].isbn").value("I1"));
+                .andExpect(jsonPath("$.books[0].isbn").value("I1"))
+                .andExpect(jsonPath("$.totalBooks").doesNotExist());
+    }
+
+    @Test
+    void getBorrowerById_ETagRevalidatesUntilBorrowerChanges() throws Exception {
+        when(borrowerService.findById(1L)).thenReturn(new BorrowerWithBooksResponse(1L, "John", "john@x.com", List.of()));
+        String etag = mockMvc.perform(get("/api/borrowers/1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/borrowers/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        viewVersions.borrowerChanged(2L);
+        mockMvc.perform(get("/api/borrowers/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        viewVersions.borrowerChanged(1L);
+        mockMvc.perform(get("/api/borrowers/1").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)));
+        Mockito.verify(borrowerService, Mockito.times(2)).findById(1L);
     }
 
     @Test
@@ -84,6 +122,99 @@ class BorrowerControllerTest {
                 .andExpect(jsonPath("$", hasSize(2)));
     }
 
+    @Test
+    void getBorrowerById_withBooksLimit_returnsFirstBooksAndTotal() throws Exception {
+        when(borrowerService.findById(1L, 1)).thenReturn(new BorrowerWithBooksResponse(1L, "John", "john@x.com",
+                List.of(new BookResponse(3L, "I3", "T3", "A3")), 1200));
+
+        mockMvc.perform(get("/api/borrowers/1").param("books", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books", hasSize(1)))
+                .andExpect(jsonPath("$.totalBooks").value(1200));
+        Mockito.verify(borrowerService, Mockito.never()).findById(1L);
+    }
+
+    @Test
+    void getBorrowerBooks_returnsPageAndNextCursorHeader() throws Exception {
+        when(borrowerService.getBorrowerBooks(1L, 3L, 1)).thenReturn(new CursorPage<>(List.of(new BookResponse(4L, "I4", "T4", "A4")), 4L));
+
+        mockMvc.perform(get("/api/borrowers/1/books").param("after", "3").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "4"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(4L));
+    }
+
+    @Test
+    void borrowBook_withIdempotencyKey_replaysFirstResponse() throws Exception {
+        when(borrowerService.borrow(1L, 5L)).thenReturn(new BorrowerResponse(1L, "John", "john@x.com",
+                "Book Borrowed Successfully", new BookResponse(5L, "I5", "T5", "A5")));
+
+        mockMvc.perform(post("/api/borrowers/1/borrow/5").header(IdempotencyStore.HEADER, "retry-me"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyStore.REPLAYED_HEADER));
+        mockMvc.perform(post("/api/borrowers/1/borrow/5").header(IdempotencyStore.HEADER, "retry-me"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.bookResponse.id").value(5L));
+        Mockito.verify(borrowerService, Mockito.times(1)).borrow(1L, 5L);
+
+        // the same key for another book is a client error, not a replay
+        mockMvc.perform(post("/api/borrowers/1/borrow/6").header(IdempotencyStore.HEADER, "retry-me"))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void borrowAll_returnsPerBookOutcomes() throws Exception {
+        when(borrowerService.borrowAll(1L, List.of(10L, 11L), false)).thenReturn(new BatchLoanResponse(1L, "John", 1, 1, List.of(
+                new BatchLoanItemResponse(0, 10L, BatchLoanItemResponse.Status.BORROWED, null, null),
+                new BatchLoanItemResponse(1, 11L, BatchLoanItemResponse.Status.REJECTED,
+                        "BookAlreadyBorrowedException", "Book already borrowed"))));
+
+        mockMvc.perform(post("/api/borrowers/1/borrow")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookIds\":[10,11]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(1))
+                .andExpect(jsonPath("$.items[0].status").value("BORROWED"))
+                .andExpect(jsonPath("$.items[0].error").doesNotExist())
+                .andExpect(jsonPath("$.items[1].error").value("BookAlreadyBorrowedException"));
+    }
+
+    @Test
+    void returnAll_allOrNothingWithRejection_returns422() throws Exception {
+        when(borrowerService.returnAll(1L, List.of(10L), true)).thenReturn(new BatchLoanResponse(1L, "John", 0, 1, List.of(
+                new BatchLoanItemResponse(0, 10L, BatchLoanItemResponse.Status.REJECTED,
+                        "BookNotBorrowedException", "This book has not been borrowed yet"))));
+
+        mockMvc.perform(post("/api/borrowers/1/return")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookIds\":[10],\"allOrNothing\":true}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.items[0].status").value("REJECTED"));
+    }
+
+    @Test
+    void borrowAll_emptyList_returns400() throws Exception {
+        mockMvc.perform(post("/api/borrowers/1/borrow")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bookIds\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getBorrowerSummaries_returnsPageAndNextCursorHeader() throws Exception {
+        BorrowerSummaryResponse s1 = new BorrowerSummaryResponse(3L, "J3", "j3@x.com", 2);
+        when(borrowerService.getBorrowerSummaries(2L, 1)).thenReturn(new CursorPage<>(List.of(s1), 3L));
+
+        mockMvc.perform(get("/api/borrowers/summary").param("after", "2").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CursorPage.NEXT_CURSOR_HEADER, "3"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].loanCount").value(2))
+                .andExpect(jsonPath("$[0].books").doesNotExist());
+    }
+
     @Test
     void borrowBook_returnsBorrowerWithOnlyThatBook() throws Exception {
         BorrowerResponse mock = new BorrowerResponse(
@@ -107,6 +238,11 @@ class BorrowerControllerTest {
         mockMvc.perform(post("/api/borrowers/1/borrow/11"))
                 // depending on your @ControllerAdvice mapping; adjust if it’s 400/409
                 .andExpect(status().isUnprocessableEntity());
+
+        assertThat(meterRegistry.get("library.exceptions")
+                .tag("exception", "BookAlreadyBorrowedException")
+                .tag("status", "422")
+                .counter().count()).isEqualTo(1.0);
     }
 
     @Test
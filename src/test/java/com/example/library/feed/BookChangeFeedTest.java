@@ -0,0 +1,274 @@
+package com.example.library.feed;
+
+import com.example.library.dto.BookChangeEvent;
+import com.example.library.event.BookBorrowedEvent;
+import com.example.library.event.BookRegisteredEvent;
+import com.example.library.event.BookReturnedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookChangeFeedTest {
+
+    private static final Pattern FIELD = Pattern.compile("^(event|id|:)(.*)$", Pattern.MULTILINE);
+
+    /** What one client received, event by event. */
+    private static class RecordingEmitter extends SseEmitter {
+
+        record Sent(String name, String id, Object data, String comment) {}
+
+        final List<Sent> sent = new ArrayList<>();
+        boolean broken;
+        Runnable duringFirstSend;
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) throws IOException {
+            if (broken) {
+                throw new IOException("Broken pipe");
+            }
+            String name = null;
+            String id = null;
+            String comment = null;
+            Object data = null;
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                if (part.getData() instanceof String text) {
+                    Matcher field = FIELD.matcher(text);
+                    while (field.find()) {
+                        switch (field.group(1)) {
+                            case "event" -> name = field.group(2).substring(1);
+                            case "id" -> id = field.group(2).substring(1);
+                            default -> comment = field.group(2);
+                        }
+                    }
+                } else {
+                    data = part.getData();
+                }
+            }
+            sent.add(new Sent(name, id, data, comment));
+            if (duringFirstSend != null) {
+                Runnable during = duringFirstSend;
+                duringFirstSend = null;
+                during.run();
+            }
+        }
+
+        List<String> names() {
+            return sent.stream().map(Sent::name).toList();
+        }
+
+        Sent last() {
+            return sent.get(sent.size() - 1);
+        }
+    }
+
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private SimpleMeterRegistry meterRegistry;
+    private boolean runSendersInline;
+
+    private BookChangeFeed feed(int bufferSize, int maxSubscribers) {
+        return new BookChangeFeed(meterRegistry, bufferSize, maxSubscribers, Duration.ofMinutes(1), task -> {
+            if (runSendersInline) {
+                task.run();
+            } else {
+                pending.add(task);
+            }
+        }, null) {
+            @Override
+            SseEmitter newEmitter(long timeoutMillis) {
+                return new RecordingEmitter();
+            }
+        };
+    }
+
+    private void runSenders() {
+        while (!pending.isEmpty()) {
+            pending.poll().run();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        runSendersInline = true;
+    }
+
+    @Test
+    void subscriber_receivesCommittedChangesInOrder_withSequenceNumbers() {
+        BookChangeFeed feed = feed(16, 10);
+        RecordingEmitter client = (RecordingEmitter) feed.subscribe(null);
+
+        feed.on(new BookRegisteredEvent(1L, "ISBN-1", "Title", "Author"));
+        feed.on(new BookBorrowedEvent(1L, 7L));
+        feed.on(new BookReturnedEvent(1L, 7L));
+
+        assertEquals(List.of("BOOK_REGISTERED", "BOOK_BORROWED", "BOOK_RETURNED"), client.names());
+        assertEquals(new BookChangeEvent(1, BookChangeEvent.Type.BOOK_REGISTERED, 1L, "ISBN-1", "Title", "Author", null),
+                client.sent.get(0).data());
+        assertEquals(new BookChangeEvent(2, BookChangeEvent.Type.BOOK_BORROWED, 1L, null, null, null, 7L),
+                client.sent.get(1).data());
+        assertTrue(client.last().id().endsWith("-3"));
+    }
+
+    @Test
+    void newSubscriber_startsWithTheNextChange() {
+        BookChangeFeed feed = feed(16, 10);
+        feed.on(new BookBorrowedEvent(1L, 7L));
+
+        RecordingEmitter client = (RecordingEmitter) feed.subscribe(null);
+        assertTrue(client.sent.isEmpty());
+
+        feed.on(new BookReturnedEvent(1L, 7L));
+        assertEquals(List.of("BOOK_RETURNED"), client.names());
+    }
+
+    @Test
+    void listLoadedThenSubscribed_withThePositionReadBeforeLoading_missesNothing() {
+        BookChangeFeed feed = feed(16, 10);
+        feed.on(new BookBorrowedEvent(1L, 7L));
+
+        String position = feed.currentEventId();
+        // Committed while the list was loading: it may or may not be in the list.
+        feed.on(new BookReturnedEvent(1L, 7L));
+        RecordingEmitter client = (RecordingEmitter) feed.subscribe(position);
+
+        assertEquals(List.of("BOOK_RETURNED"), client.names());
+    }
+
+    @Test
+    void reconnect_withLastEventId_resumesAfterIt() {
+        BookChangeFeed feed = feed(16, 10);
+        RecordingEmitter first = (RecordingEmitter) feed.subscribe(null);
+        feed.on(new BookBorrowedEvent(1L, 7L));
+        String lastSeen = first.last().id();
+        feed.on(new BookReturnedEvent(1L, 7L));
+        feed.on(new BookBorrowedEvent(2L, 8L));
+
+        RecordingEmitter resumed = (RecordingEmitter) feed.subscribe(lastSeen);
+
+        assertEquals(List.of("BOOK_RETURNED", "BOOK_BORROWED"), resumed.names());
+        assertEquals(2L, ((BookChangeEvent) resumed.sent.get(0).data()).sequence());
+    }
+
+    @Test
+    void reconnect_afterTheBufferMovedOn_getsReset() {
+        BookChangeFeed feed = feed(2, 10);
+        RecordingEmitter first = (RecordingEmitter) feed.subscribe(null);
+        feed.on(new BookBorrowedEvent(1L, 7L));
+        String lastSeen = first.last().id();
+        for (long book = 2; book <= 4; book++) {
+            feed.on(new BookBorrowedEvent(book, 7L));
+        }
+
+        RecordingEmitter resumed = (RecordingEmitter) feed.subscribe(lastSeen);
+        feed.on(new BookReturnedEvent(4L, 7L));
+
+        assertEquals(List.of(BookChangeFeed.RESET_EVENT, "BOOK_RETURNED"), resumed.names());
+        assertEquals(Map.of("sequence", 4L), resumed.sent.get(0).data());
+    }
+
+    @Test
+    void reconnect_withIdFromAnotherProcess_getsReset() {
+        BookChangeFeed feed = feed(16, 10);
+        feed.on(new BookBorrowedEvent(1L, 7L));
+
+        RecordingEmitter resumed = (RecordingEmitter) feed.subscribe("otherepoch-1");
+
+        assertEquals(List.of(BookChangeFeed.RESET_EVENT), resumed.names());
+        assertTrue(resumed.last().id().endsWith("-1"));
+    }
+
+    @Test
+    void publishing_onlyQueuesOneSenderPerSubscriber() {
+        runSendersInline = false;
+        BookChangeFeed feed = feed(16, 10);
+        RecordingEmitter first = (RecordingEmitter) feed.subscribe(null);
+        RecordingEmitter second = (RecordingEmitter) feed.subscribe(null);
+        runSenders();
+
+        for (long book = 1; book <= 3; book++) {
+            feed.on(new BookBorrowedEvent(book, 7L));
+        }
+
+        assertTrue(first.sent.isEmpty());
+        assertEquals(2, pending.size());
+        runSenders();
+        assertEquals(3, first.sent.size());
+        assertEquals(3, second.sent.size());
+    }
+
+    @Test
+    void slowSubscriber_lappedByTheBuffer_getsReset_othersKeepUp() {
+        BookChangeFeed feed = feed(4, 10);
+        RecordingEmitter fast = (RecordingEmitter) feed.subscribe(null);
+        RecordingEmitter slow = (RecordingEmitter) feed.subscribe(null);
+        // Five more changes commit while the slow client's first write is stuck.
+        slow.duringFirstSend = () -> {
+            for (long book = 2; book <= 6; book++) {
+                feed.on(new BookBorrowedEvent(book, 7L));
+            }
+        };
+
+        feed.on(new BookBorrowedEvent(1L, 7L));
+
+        assertEquals(6, fast.sent.size());
+        assertEquals(List.of("BOOK_BORROWED", BookChangeFeed.RESET_EVENT), slow.names());
+        assertEquals(Map.of("sequence", 6L), slow.last().data());
+        assertEquals(1, meterRegistry.get(BookChangeFeed.RESETS_METRIC).functionCounter().count());
+    }
+
+    @Test
+    void maxSubscribers_refusesFurtherClients() {
+        BookChangeFeed feed = feed(16, 1);
+
+        assertNotNull(feed.subscribe(null));
+        assertNull(feed.subscribe(null));
+        assertEquals(1, meterRegistry.get(BookChangeFeed.SUBSCRIBERS_METRIC).gauge().value());
+    }
+
+    @Test
+    void brokenClient_isDropped() {
+        BookChangeFeed feed = feed(16, 1);
+        RecordingEmitter client = (RecordingEmitter) feed.subscribe(null);
+        client.broken = true;
+
+        feed.on(new BookBorrowedEvent(1L, 7L));
+
+        assertEquals(0, meterRegistry.get(BookChangeFeed.SUBSCRIBERS_METRIC).gauge().value());
+        assertNotNull(feed.subscribe(null));
+    }
+
+    @Test
+    void heartbeat_sendsCommentOnlyToIdleClients() {
+        BookChangeFeed feed = feed(16, 10);
+        RecordingEmitter client = (RecordingEmitter) feed.subscribe(null);
+
+        feed.heartbeat();
+
+        assertEquals(1, client.sent.size());
+        assertNotNull(client.last().comment());
+        assertNull(client.last().name());
+    }
+
+    @Test
+    void events_serializeWithoutEmptyFields() throws Exception {
+        String json = new MappingJackson2HttpMessageConverter().getObjectMapper()
+                .writeValueAsString(new BookChangeEvent(5, BookChangeEvent.Type.BOOK_RETURNED, 1L, null, null, null, 7L));
+
+        assertEquals("{\"sequence\":5,\"type\":\"BOOK_RETURNED\",\"bookId\":1,\"borrowerId\":7}", json);
+    }
+}
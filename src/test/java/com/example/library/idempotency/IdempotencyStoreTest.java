@@ -0,0 +1,174 @@
+package com.example.library.idempotency;
+
+import com.example.library.exception.BookAlreadyBorrowedException;
+import com.example.library.exception.ConflictException;
+import com.example.library.exception.IdempotencyKeyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyStore store;
+    private AtomicInteger calls;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new IdempotencyStore(meterRegistry, 100, Duration.ofMinutes(1), Duration.ofMillis(200));
+        calls = new AtomicInteger();
+    }
+
+    private double requests(String outcome) {
+        return meterRegistry.get(IdempotencyStore.METRIC).tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    void execute_replaysFirstResult_withoutRunningAgain() {
+        IdempotencyStore.Result<String> first = store.execute("k1", "borrow 1/2", () -> "loan " + calls.incrementAndGet());
+        IdempotencyStore.Result<String> retry = store.execute("k1", "borrow 1/2", () -> "loan " + calls.incrementAndGet());
+
+        assertEquals(new IdempotencyStore.Result<>("loan 1", false), first);
+        assertEquals(new IdempotencyStore.Result<>("loan 1", true), retry);
+        assertEquals(1, calls.get());
+        assertEquals(1, requests("executed"));
+        assertEquals(1, requests("replayed"));
+    }
+
+    @Test
+    void execute_doesNotRememberFailures() {
+        assertThrows(BookAlreadyBorrowedException.class, () -> store.execute("k1", "borrow 1/2", () -> {
+            calls.incrementAndGet();
+            throw new BookAlreadyBorrowedException("Book already borrowed");
+        }));
+
+        assertEquals("ok", store.execute("k1", "borrow 1/2", () -> "ok").value());
+    }
+
+    @Test
+    void execute_keyReusedForDifferentRequest_isRejected() {
+        store.execute("k1", "borrow 1/2", () -> "loan");
+
+        assertThrows(IdempotencyKeyException.class, () -> store.execute("k1", "borrow 1/3", () -> "other"));
+    }
+
+    @Test
+    void execute_overlongKey_isRejected() {
+        String key = "k".repeat(IdempotencyStore.MAX_KEY_LENGTH + 1);
+
+        assertThrows(IdempotencyKeyException.class, () -> store.execute(key, "borrow 1/2", () -> "loan"));
+    }
+
+    @Test
+    void execute_concurrentDuplicate_waitsForFirstOutcome() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<IdempotencyStore.Result<String>> first = pool.submit(() -> store.execute("k1", "borrow 1/2", () -> {
+                running.countDown();
+                await(finish);
+                return "loan " + calls.incrementAndGet();
+            }));
+            assertTrue(running.await(1, TimeUnit.SECONDS));
+
+            // still running: the duplicate gives up after the wait timeout instead of executing
+            assertThrows(ConflictException.class, () -> store.execute("k1", "borrow 1/2", () -> "second"));
+
+            Future<IdempotencyStore.Result<String>> duplicate = pool.submit(() -> store.execute("k1", "borrow 1/2", () -> "second"));
+            awaitWaiting("k1");
+            finish.countDown();
+
+            assertEquals(new IdempotencyStore.Result<>("loan 1", true), duplicate.get(1, TimeUnit.SECONDS));
+            assertEquals("loan 1", first.get(1, TimeUnit.SECONDS).value());
+            assertEquals(1, calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_concurrentDuplicate_getsTheFirstFailure() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = pool.submit(() -> store.execute("k1", "borrow 1/2", () -> {
+                running.countDown();
+                await(finish);
+                throw new BookAlreadyBorrowedException("Book already borrowed");
+            }));
+            assertTrue(running.await(1, TimeUnit.SECONDS));
+
+            Future<?> duplicate = pool.submit(() -> store.execute("k1", "borrow 1/2", () -> "second"));
+            awaitWaiting("k1");
+            finish.countDown();
+
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> duplicate.get(1, TimeUnit.SECONDS));
+            assertInstanceOf(BookAlreadyBorrowedException.class, failure.getCause());
+            assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_callInFlight_isNotEvictedByLaterCalls() throws Exception {
+        store = new IdempotencyStore(meterRegistry, 1, Duration.ofMinutes(1), Duration.ofSeconds(1));
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<IdempotencyStore.Result<String>> first = pool.submit(() -> store.execute("k1", "borrow 1/2", () -> {
+                running.countDown();
+                await(finish);
+                return "loan " + calls.incrementAndGet();
+            }));
+            assertTrue(running.await(1, TimeUnit.SECONDS));
+            for (int i = 2; i <= 10; i++) {
+                store.execute("k" + i, "borrow 1/" + i, () -> "other");
+            }
+
+            // Still in flight, so the duplicate must find it. (Once completed, the size bound may drop it.)
+            Future<IdempotencyStore.Result<String>> duplicate = pool.submit(
+                    () -> store.execute("k1", "borrow 1/2", () -> "loan " + calls.incrementAndGet()));
+            awaitWaiting("k1");
+            finish.countDown();
+
+            assertEquals(new IdempotencyStore.Result<>("loan 1", true), duplicate.get(1, TimeUnit.SECONDS));
+            assertEquals("loan 1", first.get(1, TimeUnit.SECONDS).value());
+            assertEquals(1, calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Until a duplicate is blocked on the call in flight under the key.
+    private void awaitWaiting(String key) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (store.waiting(key) == 0) {
+            assertTrue(System.nanoTime() < deadline, "no duplicate waiting on " + key);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
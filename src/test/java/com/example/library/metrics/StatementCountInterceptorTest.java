@@ -0,0 +1,51 @@
+package com.example.library.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatementCountInterceptorTest {
+
+    private SqlStatementCounter counter;
+    private SimpleMeterRegistry meterRegistry;
+    private StatementCountInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        counter = new SqlStatementCounter();
+        meterRegistry = new SimpleMeterRegistry();
+        interceptor = new StatementCountInterceptor(counter, meterRegistry);
+    }
+
+    @Test
+    void afterCompletion_recordsStatementsIssuedSincePreHandle_byUriTemplate() {
+        counter.inspect("select 1"); // left over from an earlier request on this thread
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/borrowers/7");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/borrowers/{id}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, null);
+        counter.inspect("select b from borrower b where b.id = ?");
+        counter.inspect("select b from book b where b.borrower_id = ?");
+        interceptor.afterCompletion(request, response, null, null);
+
+        DistributionSummary summary = meterRegistry.get(StatementCountInterceptor.METRIC)
+                .tag("method", "GET")
+                .tag("uri", "/api/borrowers/{id}")
+                .summary();
+        assertThat(summary.count()).isEqualTo(1);
+        assertThat(summary.totalAmount()).isEqualTo(2.0);
+    }
+
+    @Test
+    void inspect_returnsSqlUnchanged() {
+        assertThat(counter.inspect("select 1")).isEqualTo("select 1");
+        assertThat(counter.count()).isEqualTo(1);
+    }
+}
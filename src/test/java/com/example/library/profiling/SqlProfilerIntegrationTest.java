@@ -0,0 +1,86 @@
+package com.example.library.profiling;
+
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.BorrowerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The read endpoints must not issue a statement per borrower or per book: with the
+ * profiler in FAIL mode any N+1 regression fails the request.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sql-profiler;DB_CLOSE_DELAY=-1",
+        "library.sql-profiler.enabled=true",
+        "library.sql-profiler.mode=fail",
+        "library.sql-profiler.max-statements=10",
+        "library.sql-profiler.max-repeats=3"
+})
+@AutoConfigureMockMvc
+class SqlProfilerIntegrationTest {
+
+    private static final int BORROWERS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowerRepository borrowerRepository;
+
+    private Long borrowerId;
+    private Long freeBookId;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository.deleteAll();
+        borrowerRepository.deleteAll();
+        for (int i = 0; i < BORROWERS; i++) {
+            Borrower borrower = borrowerRepository.save(new Borrower("Reader " + i, "reader" + i + "@x.com"));
+            for (int j = 0; j < 2; j++) {
+                Book book = new Book("ISBN-" + i + "-" + j, "Title", "Author");
+                book.setBorrower(borrower);
+                bookRepository.save(book);
+            }
+            borrowerId = borrower.getId();
+        }
+        freeBookId = bookRepository.save(new Book("ISBN-FREE", "Free", "Author")).getId();
+    }
+
+    @Test
+    void readEndpoints_stayWithinTheStatementBudget() throws Exception {
+        mockMvc.perform(get("/api/borrowers"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(BORROWERS)));
+        mockMvc.perform(get("/api/books"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(BORROWERS * 2 + 1)));
+        mockMvc.perform(get("/api/books").param("limit", "4"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/borrowers/" + borrowerId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books", hasSize(2)));
+    }
+
+    @Test
+    void borrowAndReturn_stayWithinTheStatementBudget() throws Exception {
+        mockMvc.perform(post("/api/borrowers/" + borrowerId + "/borrow/" + freeBookId))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/borrowers/" + borrowerId + "/return/" + freeBookId))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.library.profiling;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlProfilerTest {
+
+    private SlowQueryLog slowQueryLog;
+    private SqlProfiler profiler;
+
+    @BeforeEach
+    void setUp() {
+        slowQueryLog = new SlowQueryLog(2);
+        profiler = new SqlProfiler(slowQueryLog, SqlProfiler.Mode.FAIL, 5, 3, Duration.ofMillis(50));
+    }
+
+    @Test
+    void end_throwsWhenTheSameShapeRepeats() {
+        profiler.begin("GET /api/borrowers");
+        run("select * from borrower", 1);
+        for (long id = 1; id <= 3; id++) {
+            run("select * from book where borrower_id = " + id, 1);
+        }
+
+        SqlProfileViolationException ex = assertThrows(SqlProfileViolationException.class,
+                () -> profiler.end("GET /api/borrowers"));
+
+        assertTrue(ex.getMessage().contains("same statement 3 times"));
+        assertTrue(ex.getMessage().contains("select * from book where borrower_id = ?"));
+        assertEquals(4, ex.getProfile().count());
+    }
+
+    @Test
+    void end_throwsWhenOverTheStatementBudget() {
+        profiler.begin("POST /api/books");
+        for (int i = 0; i < 6; i++) {
+            run("select " + i + " from t" + i, 1);
+        }
+
+        SqlProfileViolationException ex = assertThrows(SqlProfileViolationException.class,
+                () -> profiler.end("POST /api/books"));
+        assertTrue(ex.getMessage().contains("more than 5 statements"));
+    }
+
+    @Test
+    void end_ignoresRepeatedBatches() {
+        profiler.begin("POST /api/books/bulk");
+        for (int i = 0; i < 4; i++) {
+            ExecutionInfo batch = execution(1);
+            batch.setBatch(true);
+            batch.setBatchSize(500);
+            profiler.afterQuery(batch, List.of(new QueryInfo("insert into book values (?, ?, ?)")));
+        }
+
+        SqlProfile profile = profiler.end("POST /api/books/bulk");
+
+        assertEquals(4, profile.count());
+        assertEquals(500, profile.statements().get(0).batchSize());
+    }
+
+    @Test
+    void afterQuery_samplesSlowStatementsNewestFirst_withinCapacity() {
+        run("select 1", 10);
+        profiler.begin("GET /api/books");
+        run("select a", 60);
+        run("select b", 70);
+        profiler.end("GET /api/books");
+        run("select c", 80);
+
+        List<SlowQueryLog.Sample> samples = slowQueryLog.samples();
+        assertEquals(2, samples.size());
+        assertEquals("select c", samples.get(0).sql());
+        assertNull(samples.get(0).request());
+        assertEquals("select b", samples.get(1).sql());
+        assertEquals("GET /api/books", samples.get(1).request());
+        assertEquals(70, samples.get(1).elapsedMillis());
+    }
+
+    @Test
+    void shape_collapsesLiteralsWhitespaceAndInLists() {
+        assertEquals("select * from book where id in (?) and isbn = ?",
+                SqlProfile.shape("select *  from book\n where id in (?, ?,?) and isbn = 'O''Brien'"));
+        assertEquals("select * from book where id = ?", SqlProfile.shape("select * from book where id = 42"));
+    }
+
+    private void run(String sql, long elapsedMillis) {
+        profiler.afterQuery(execution(elapsedMillis), List.of(new QueryInfo(sql)));
+    }
+
+    private static ExecutionInfo execution(long elapsedMillis) {
+        ExecutionInfo info = new ExecutionInfo();
+        info.setElapsedTime(elapsedMillis);
+        info.setSuccess(true);
+        return info;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.library.registration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BorrowerEmailFilterTest {
+
+    @Test
+    void addedEmails_areAlwaysReported_ignoringCase() {
+        BorrowerEmailFilter filter = new BorrowerEmailFilter(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            filter.add("reader" + i + "@example.com");
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("reader" + i + "@example.com"));
+        }
+        assertTrue(filter.mightContain("Reader7@Example.com"));
+    }
+
+    @Test
+    void falsePositiveRate_staysNearTheConfiguredRate() {
+        BorrowerEmailFilter filter = new BorrowerEmailFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("reader" + i + "@example.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("someone" + i + "@example.org")) {
+                falsePositives++;
+            }
+        }
+        assertEquals(7, filter.hashCount());
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void emptyFilter_reportsNothing() {
+        assertFalse(new BorrowerEmailFilter(100, 0.01).mightContain("reader@example.com"));
+    }
+
+    @Test
+    void invalidSizing_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BorrowerEmailFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BorrowerEmailFilter(100, 1.0));
+    }
+}
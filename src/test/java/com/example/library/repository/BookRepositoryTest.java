@@ -0,0 +1,199 @@
+package com.example.library.repository;
+
+import com.example.library.dto.BookLoanState;
+import com.example.library.dto.BookResponse;
+import com.example.library.dto.BookRow;
+import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.dto.BookWithBorrowerRow;
+import com.example.library.dto.IsbnTitleAuthor;
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.mapper.Mapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BookRepositoryTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 5; i++) {
+            Borrower borrower = entityManager.persist(new Borrower("Borrower " + i, "b" + i + "@x.com"));
+            Book borrowed = new Book("ISBN-" + i, "Title " + i, "Author " + i);
+            borrowed.setBorrower(borrower);
+            entityManager.persist(borrowed);
+            entityManager.persist(new Book("ISBN-" + i, "Title " + i, "Author " + i));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findRowPageWithBorrower_projectsBorrowerColumnsInSingleStatement() {
+        List<BookWithBorrowerResponse> page = bookRepository.findRowPageWithBorrower(0L, PageRequest.of(0, 6)).stream()
+                .map(Mapper::toBookWithBorrowerResponse)
+                .toList();
+
+        assertEquals(6, page.size());
+        assertEquals(3, page.stream().filter(b -> b.borrower() != null).count());
+        assertTrue(page.stream().filter(b -> b.borrower() != null).allMatch(b -> b.borrower().email() != null));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findLoanRow_readsBookAndBorrowerInSingleStatement() {
+        Borrower reader = entityManager.persistAndFlush(new Borrower("Reader", "reader@x.com"));
+        Long bookId = entityManager.persistAndFlush(new Book("ISBN-R", "Read", "Author")).getId();
+        entityManager.clear();
+        statistics.clear();
+
+        BookWithBorrowerRow row = bookRepository.findLoanRow(bookId, reader.getId()).orElseThrow();
+
+        assertEquals(new BookWithBorrowerRow(bookId, "ISBN-R", "Read", "Author", reader.getId(), "Reader", "reader@x.com"), row);
+        assertTrue(bookRepository.findLoanRow(bookId, -1L).isEmpty());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findPageByBorrowerId_walksOnlyThatBorrowersBooks() {
+        Borrower school = entityManager.persist(new Borrower("School", "school@x.com"));
+        for (int i = 0; i < 5; i++) {
+            Book book = new Book("ISBN-S" + i, "School " + i, "Author");
+            book.setBorrower(school);
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        List<BookResponse> first = bookRepository.findPageByBorrowerId(school.getId(), 0L, PageRequest.of(0, 3));
+        List<BookResponse> second = bookRepository.findPageByBorrowerId(school.getId(), first.get(2).id(), PageRequest.of(0, 3));
+
+        assertEquals(List.of("School 0", "School 1", "School 2"), first.stream().map(BookResponse::title).toList());
+        assertEquals(List.of("School 3", "School 4"), second.stream().map(BookResponse::title).toList());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findRowPageWithBorrower_walksPagesInIdOrder() {
+        List<BookWithBorrowerRow> first = bookRepository.findRowPageWithBorrower(0L, PageRequest.of(0, 4));
+        List<BookWithBorrowerRow> second = bookRepository.findRowPageWithBorrower(first.get(3).id(), PageRequest.of(0, 4));
+
+        assertEquals(4, second.size());
+        assertTrue(second.get(0).id() > first.get(3).id());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findAllRowsWithBorrower_returnsEveryBookWithoutLoadingEntities() {
+        List<BookWithBorrowerRow> rows = bookRepository.findAllRowsWithBorrower();
+
+        assertEquals(10, rows.size());
+        assertEquals(5, rows.stream().filter(r -> r.borrowerName() != null).count());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void streamAllWithBorrower_readsCatalogInOneStatement() {
+        long borrowed;
+        try (Stream<Book> books = bookRepository.streamAllWithBorrower()) {
+            borrowed = books.map(Mapper::toBookWithBorrowerResponse)
+                    .filter(b -> b.borrower() != null)
+                    .count();
+        }
+
+        assertEquals(5, borrowed);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void claimAndRelease_updateOnlyWhenConditionHolds() {
+        Borrower borrower = entityManager.persist(new Borrower("Claimer", "claimer@x.com"));
+        Book book = entityManager.persist(new Book("ISBN-C", "Claimed", "Author"));
+        entityManager.flush();
+
+        assertEquals(0, bookRepository.claim(book.getId(), -1L));
+        assertEquals(1, bookRepository.claim(book.getId(), borrower.getId()));
+        assertEquals(0, bookRepository.claim(book.getId(), borrower.getId()));
+
+        Book claimed = bookRepository.findById(book.getId()).orElseThrow();
+        assertEquals(borrower.getId(), claimed.getBorrower().getId());
+        assertEquals(1, claimed.getVersion());
+
+        assertEquals(0, bookRepository.release(book.getId(), -1L));
+        assertEquals(1, bookRepository.release(book.getId(), borrower.getId()));
+        assertNull(bookRepository.findById(book.getId()).orElseThrow().getBorrower());
+    }
+
+    @Test
+    void lockLoanStates_thenClaimAllAndReleaseAll_inSetBasedStatements() {
+        Borrower borrower = entityManager.persist(new Borrower("Kiosk", "kiosk@x.com"));
+        Book first = entityManager.persist(new Book("ISBN-K1", "Kiosk 1", "Author"));
+        Book second = entityManager.persist(new Book("ISBN-K2", "Kiosk 2", "Author"));
+        entityManager.flush();
+        statistics.clear();
+
+        List<BookLoanState> states = bookRepository.lockLoanStates(List.of(second.getId(), first.getId(), -1L));
+        assertEquals(List.of(new BookLoanState(first.getId(), null), new BookLoanState(second.getId(), null)), states);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        assertEquals(2, bookRepository.claimAll(List.of(first.getId(), second.getId()), borrower.getId()));
+        assertEquals(0, bookRepository.claimAll(List.of(first.getId()), borrower.getId()));
+        assertEquals(2, bookRepository.lockLoanStates(List.of(first.getId(), second.getId())).stream()
+                .filter(state -> borrower.getId().equals(state.borrowerId())).count());
+
+        assertEquals(0, bookRepository.releaseAll(List.of(first.getId()), -1L));
+        assertEquals(2, bookRepository.releaseAll(List.of(first.getId(), second.getId()), borrower.getId()));
+    }
+
+    @Test
+    void findFirstByIsbn_projectsTitleAndAuthor() {
+        IsbnTitleAuthor entry = bookRepository.findFirstByIsbn("ISBN-2").orElseThrow();
+
+        assertEquals(new IsbnTitleAuthor("ISBN-2", "Title 2", "Author 2"), entry);
+        assertTrue(bookRepository.findFirstByIsbn("missing").isEmpty());
+    }
+
+    @Test
+    void streamAllRows_includesAvailableBooks() {
+        List<BookRow> rows;
+        try (Stream<BookRow> stream = bookRepository.streamAllRows()) {
+            rows = stream.toList();
+        }
+
+        assertEquals(10, rows.size());
+        assertEquals(5, rows.stream().filter(row -> row.borrowerId() == null).count());
+    }
+}
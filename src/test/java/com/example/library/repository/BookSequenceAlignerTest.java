@@ -0,0 +1,74 @@
+package com.example.library.repository;
+
+import com.example.library.entity.Book;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.dialect.MySQLDialect;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A book written before the sequence existed: the sequence starts at 1 and the first
+ * registration would take its id.
+ */
+@DataJpaTest
+@Import(BookSequenceAligner.class)
+// ALTER SEQUENCE commits in H2, so the rows are cleaned up by hand.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookSequenceAlignerTest {
+
+    @Autowired
+    private BookSequenceAligner aligner;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void align_movesTheSequencePastExistingIds_andNeverBack() {
+        new JdbcTemplate(dataSource).update(
+                "insert into book (id, isbn, title, author, version) values (1000, 'ISBN-0', 'Old', 'Author', 0)");
+
+        assertEquals(1000 + Book.ID_ALLOCATION_SIZE, aligner.align());
+        assertEquals(0, aligner.align());
+
+        Book registered = bookRepository.save(new Book("ISBN-1", "New", "Author"));
+        // The second check read (and skipped) one block.
+        assertTrue(registered.getId() > 1000, () -> "id " + registered.getId());
+    }
+
+    @Test
+    void align_updatesTheEmulatedSequenceTable_onDatabasesWithoutSequences() {
+        try (HikariDataSource database = new HikariDataSource()) {
+            database.setJdbcUrl("jdbc:h2:mem:book-seq-table;DB_CLOSE_DELAY=-1");
+            database.setUsername("sa");
+            JdbcTemplate jdbc = new JdbcTemplate(database);
+            // What ddl-auto creates for book_seq on MySQL.
+            jdbc.execute("create table book (id bigint primary key)");
+            jdbc.execute("create table book_seq (next_val bigint)");
+            jdbc.update("insert into book values (7), (1000)");
+            jdbc.update("insert into book_seq values (1)");
+            BookSequenceAligner tableAligner = new BookSequenceAligner(new MySQLDialect(), database);
+
+            assertEquals(1000 + Book.ID_ALLOCATION_SIZE, tableAligner.align());
+            assertEquals(0, tableAligner.align());
+            assertEquals(1000 + Book.ID_ALLOCATION_SIZE, jdbc.queryForObject("select next_val from book_seq", Long.class));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.library.repository;
+
+import com.example.library.dto.BorrowerBookRow;
+import com.example.library.dto.BorrowerSummaryResponse;
+import com.example.library.dto.BorrowerWithBooksResponse;
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.mapper.Mapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BorrowerRepositoryTest {
+
+    @Autowired
+    private BorrowerRepository borrowerRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Borrower reader;
+    private Borrower idle;
+
+    @BeforeEach
+    void setUp() {
+        reader = entityManager.persist(new Borrower("Reader", "reader@x.com"));
+        idle = entityManager.persist(new Borrower("Idle", "idle@x.com"));
+        for (int i = 0; i < 3; i++) {
+            Book book = new Book("ISBN-" + i, "Title " + i, "Author " + i);
+            book.setBorrower(reader);
+            entityManager.persist(book);
+        }
+        entityManager.persist(new Book("ISBN-F", "Free", "Author"));
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllRowsWithBooks_groupsIntoBorrowersInSingleStatement() {
+        List<BorrowerWithBooksResponse> borrowers = Mapper.toBorrowerWithBooksResponses(borrowerRepository.findAllRowsWithBooks());
+
+        assertEquals(2, borrowers.size());
+        assertEquals(3, borrowers.get(0).books().size());
+        assertTrue(borrowers.get(1).books().isEmpty());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findRowsWithBooksById_returnsOneRowPerBook_orOneEmptyRow() {
+        List<BorrowerBookRow> readerRows = borrowerRepository.findRowsWithBooksById(reader.getId());
+        List<BorrowerBookRow> idleRows = borrowerRepository.findRowsWithBooksById(idle.getId());
+
+        assertEquals(3, readerRows.size());
+        assertEquals(1, idleRows.size());
+        assertNull(idleRows.get(0).bookId());
+        assertTrue(borrowerRepository.findRowsWithBooksById(-1L).isEmpty());
+    }
+
+    @Test
+    void findSummaryPage_readsLoanCountsInSingleStatement() {
+        borrowerRepository.adjustLoanCount(reader.getId(), 3);
+
+        List<BorrowerSummaryResponse> page = borrowerRepository.findSummaryPage(0L, PageRequest.of(0, 10));
+
+        assertEquals(List.of(
+                new BorrowerSummaryResponse(reader.getId(), "Reader", "reader@x.com", 3),
+                new BorrowerSummaryResponse(idle.getId(), "Idle", "idle@x.com", 0)), page);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void findSummaryById_readsLoanCount() {
+        borrowerRepository.adjustLoanCount(reader.getId(), 3);
+
+        assertEquals(3, borrowerRepository.findSummaryById(reader.getId()).orElseThrow().loanCount());
+        assertTrue(borrowerRepository.findSummaryById(-1L).isEmpty());
+    }
+
+    @Test
+    void findSummaryPage_startsAfterCursor() {
+        List<BorrowerSummaryResponse> page = borrowerRepository.findSummaryPage(reader.getId(), PageRequest.of(0, 10));
+
+        assertEquals(1, page.size());
+        assertEquals(idle.getId(), page.get(0).id());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.library.repository;
+
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Loans made before {@code loan_count} existed: the column was added as 0.
+ */
+@DataJpaTest
+@Import(LoanCountBackfill.class)
+// CREATE TABLE commits in H2, so the rows are cleaned up by hand.
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LoanCountBackfillTest {
+
+    @Autowired
+    private LoanCountBackfill backfill;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowerRepository borrowerRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbc;
+    private Long readerId;
+    private Long idleId;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(dataSource);
+        Borrower reader = borrowerRepository.save(new Borrower("Reader", "reader@x.com"));
+        idleId = borrowerRepository.save(new Borrower("Idle", "idle@x.com")).getId();
+        readerId = reader.getId();
+        for (int i = 0; i < 2; i++) {
+            Book book = new Book("ISBN-" + i, "Title", "Author");
+            book.setBorrower(reader);
+            bookRepository.save(book);
+        }
+        // The startup run saw an empty database; undo it to stand for a database from before the column.
+        jdbc.update("delete from data_migration where name = ?", LoanCountBackfill.NAME);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        borrowerRepository.deleteAll();
+    }
+
+    private int loanCount(Long borrowerId) {
+        return borrowerRepository.findSummaryById(borrowerId).orElseThrow().loanCount();
+    }
+
+    @Test
+    void backfill_countsExistingLoans_once() {
+        assertEquals(0, loanCount(readerId));
+
+        assertEquals(1, backfill.backfill());
+        assertEquals(2, loanCount(readerId));
+        assertEquals(0, loanCount(idleId));
+
+        // Later counts are kept by borrow/return; a restart must not touch them.
+        jdbc.update("update borrower set loan_count = 5 where id = ?", readerId);
+        assertEquals(-1, backfill.backfill());
+        assertEquals(5, loanCount(readerId));
+    }
+}
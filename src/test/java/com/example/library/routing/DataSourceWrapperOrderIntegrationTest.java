@@ -0,0 +1,54 @@
+package com.example.library.routing;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * With the SQL profiler, the virtual-thread connection limiter and read replicas all on,
+ * routing must be the innermost wrapper, so profiling and permits cover replica reads too.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:wrapper-order-primary;DB_CLOSE_DELAY=-1",
+        "library.sql-profiler.enabled=true",
+        "library.server.execution-mode=virtual",
+        "library.datasource.routing.enabled=true",
+        "library.datasource.replicas[0].url=jdbc:h2:mem:wrapper-order-replica;DB_CLOSE_DELAY=-1"
+})
+class DataSourceWrapperOrderIntegrationTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void routingIsInnermost_profilerAndLimiterWrapIt() {
+        List<String> chain = new ArrayList<>();
+        DataSource current = dataSource;
+        while (current != null) {
+            chain.add(current.getClass().getSimpleName());
+            if (current instanceof ProxyDataSource proxy) {
+                current = proxy.getDataSource();
+            } else if (current instanceof DelegatingDataSource delegating) {
+                current = delegating.getTargetDataSource();
+            } else {
+                current = null;
+            }
+        }
+
+        assertEquals(4, chain.size(), chain::toString);
+        assertEquals(Set.of(ProxyDataSource.class.getSimpleName(), "ConnectionLimitingDataSource"),
+                Set.copyOf(chain.subList(0, 2)), chain::toString);
+        assertEquals(List.of(LazyConnectionDataSourceProxy.class.getSimpleName(), ReadWriteRoutingDataSource.class.getSimpleName()),
+                chain.subList(2, 4), chain::toString);
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.library.routing;
+
+import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.dto.BorrowerResponse;
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.exception.DuplicateBorrowerException;
+import com.example.library.repository.BookRepository;
+import com.example.library.repository.BorrowerRepository;
+import com.example.library.service.BookService;
+import com.example.library.service.BorrowerService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+
+/**
+ * Two H2 databases stand in for a MySQL primary and its replica. "Replication" is a
+ * snapshot copied on demand, so reads that went to the replica show up as stale.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-it-primary;DB_CLOSE_DELAY=-1",
+        "library.datasource.routing.enabled=true",
+        "library.datasource.replicas[0].url=" + ReadReplicaRoutingIntegrationTest.REPLICA_URL
+})
+class ReadReplicaRoutingIntegrationTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-it-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private BorrowerService borrowerService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowerRepository borrowerRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @TempDir
+    private Path snapshotDir;
+
+    private Long borrowerId;
+    private Long bookId;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        bookRepository.deleteAll();
+        borrowerRepository.deleteAll();
+        borrowerId = borrowerRepository.save(new Borrower("Reader", "reader@x.com")).getId();
+        bookId = bookRepository.save(new Book("ISBN-1", "Title", "Author")).getId();
+        replicate();
+    }
+
+    // Outside a transaction the routing DataSource hands out primary connections.
+    private void replicate() throws SQLException {
+        String snapshot = snapshotDir.resolve("snapshot.sql").toString().replace('\\', '/');
+        new JdbcTemplate(dataSource).execute("SCRIPT TO '" + snapshot + "'");
+        try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement statement = replica.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            statement.execute("RUNSCRIPT FROM '" + snapshot + "'");
+        }
+    }
+
+    private double reads(String pool) {
+        return meterRegistry.get(ReadReplicas.READS_METRIC).tag("pool", pool).functionCounter().count();
+    }
+
+    @Test
+    void readOnlyQueries_goToTheReplica_writesAndTheirResponses_toThePrimary() throws SQLException {
+        double replicaReads = reads("replica-0");
+
+        BorrowerResponse borrowed = borrowerService.borrow(borrowerId, bookId);
+        assertEquals(bookId, borrowed.bookResponse().id());
+
+        // The replica has not seen the borrow yet.
+        BookWithBorrowerResponse book = bookService.getAllBooks().get(0);
+        assertNull(book.borrower());
+        assertTrue(reads("replica-0") > replicaReads);
+
+        // The borrower view is cached until the next write, so it is always loaded from the primary.
+        assertEquals(1, borrowerService.findById(borrowerId).books().size());
+
+        replicate();
+        assertNotNull(bookService.getAllBooks().get(0).borrower());
+    }
+
+    @Test
+    void responsesCarryingAnETag_readThePrimary() throws Exception {
+        borrowerService.borrow(borrowerId, bookId);
+        // The replica still shows the book as free; a body from it would be older than the ETag sent with it.
+        assertNull(bookService.getAllBooks().get(0).borrower());
+
+        mockMvc.perform(get("/api/books"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$[0].borrower.id").value(borrowerId));
+        mockMvc.perform(get("/api/books").param("limit", "10"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$[0].borrower.id").value(borrowerId));
+        mockMvc.perform(get("/api/borrowers/{id}", borrowerId).param("books", "5"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.books[0].id").value(bookId))
+                .andExpect(jsonPath("$.totalBooks").value(1));
+        mockMvc.perform(get("/api/borrowers"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$[0].books[0].id").value(bookId));
+    }
+
+    @Test
+    void registrationChecks_readThePrimary() {
+        Long id = borrowerRepository.save(new Borrower("Other", "other@x.com")).getId();
+        assertNotNull(id);
+
+        // The email filter never saw it, so the insert is rejected; the lookup explaining why must not read
+        // the replica, which does not have the row yet.
+        assertThrows(DuplicateBorrowerException.class,
+                () -> borrowerService.create(new Borrower("Again", "other@x.com")));
+    }
+}
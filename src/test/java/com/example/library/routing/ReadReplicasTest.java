@@ -0,0 +1,90 @@
+package com.example.library.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadReplicasTest {
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    private HikariDataSource pool(String url) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("replica-" + pools.size());
+        pool.setJdbcUrl(url);
+        pool.setUsername("sa");
+        pool.setConnectionTimeout(250);
+        pools.add(pool);
+        return pool;
+    }
+
+    private ReadReplicas replicas(ReadReplicas.Strategy strategy, String... urls) {
+        List<HikariDataSource> created = new ArrayList<>();
+        for (String url : urls) {
+            created.add(pool(url));
+        }
+        return new ReadReplicas(created, strategy, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void roundRobin_takesReplicasInTurn() {
+        ReadReplicas replicas = replicas(ReadReplicas.Strategy.ROUND_ROBIN,
+                "jdbc:h2:mem:rr-a;DB_CLOSE_DELAY=-1", "jdbc:h2:mem:rr-b;DB_CLOSE_DELAY=-1");
+
+        assertEquals(List.of(0, 1, 0, 1), List.of(replicas.choose(), replicas.choose(), replicas.choose(), replicas.choose()));
+    }
+
+    @Test
+    void leastLoaded_avoidsTheReplicaWithConnectionsInUse() throws SQLException {
+        ReadReplicas replicas = replicas(ReadReplicas.Strategy.LEAST_LOADED,
+                "jdbc:h2:mem:ll-a;DB_CLOSE_DELAY=-1", "jdbc:h2:mem:ll-b;DB_CLOSE_DELAY=-1");
+
+        try (Connection busy = pools.get(0).getConnection()) {
+            for (int i = 0; i < 4; i++) {
+                assertEquals(1, replicas.choose());
+            }
+        }
+        // Both idle again: ties rotate.
+        assertNotEquals(replicas.choose(), replicas.choose());
+    }
+
+    @Test
+    void failingReplica_isSkippedAndCounted() throws SQLException {
+        ReadReplicas replicas = replicas(ReadReplicas.Strategy.ROUND_ROBIN,
+                "jdbc:h2:mem:never-created;IFEXISTS=TRUE", "jdbc:h2:mem:ff-b;DB_CLOSE_DELAY=-1");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        replicas.bindTo(meterRegistry);
+
+        assertNull(replicas.getConnection());
+        for (int i = 0; i < 3; i++) {
+            try (Connection connection = replicas.getConnection()) {
+                assertNotNull(connection);
+            }
+        }
+
+        assertEquals(1, meterRegistry.get(ReadReplicas.FAILURES_METRIC).tag("pool", "replica-0").functionCounter().count());
+        assertEquals(3, meterRegistry.get(ReadReplicas.READS_METRIC).tag("pool", "replica-1").functionCounter().count());
+    }
+
+    @Test
+    void allReplicasSkipped_choosesNone() {
+        ReadReplicas replicas = replicas(ReadReplicas.Strategy.LEAST_LOADED, "jdbc:h2:mem:never-created;IFEXISTS=TRUE");
+
+        assertNull(replicas.getConnection());
+        assertEquals(-1, replicas.choose());
+    }
+}
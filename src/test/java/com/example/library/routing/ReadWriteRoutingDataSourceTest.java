@@ -0,0 +1,119 @@
+package com.example.library.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two H2 databases stand in for the primary and a replica; each knows its own name.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReadReplicas replicas;
+    private SimpleMeterRegistry meterRegistry;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @BeforeEach
+    void setUp() {
+        primary = pool("primary", "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1");
+        replica = pool("replica-0", "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1");
+        for (HikariDataSource database : List.of(primary, replica)) {
+            JdbcTemplate direct = new JdbcTemplate(database);
+            direct.execute("create table if not exists node (name varchar(20))");
+            direct.execute("delete from node");
+            direct.update("insert into node values (?)", database == primary ? "primary" : "replica");
+        }
+
+        replicas = new ReadReplicas(List.of(replica), ReadReplicas.Strategy.ROUND_ROBIN, Duration.ofMinutes(1));
+        meterRegistry = new SimpleMeterRegistry();
+        replicas.bindTo(meterRegistry);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replicas));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.close();
+        replica.close();
+    }
+
+    private static HikariDataSource pool(String name, String url) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername("sa");
+        pool.setConnectionTimeout(250);
+        return pool;
+    }
+
+    private String node() {
+        return jdbc.queryForObject("select name from node", String.class);
+    }
+
+    private double reads(String pool) {
+        return meterRegistry.get(ReadReplicas.READS_METRIC).tag("pool", pool).functionCounter().count();
+    }
+
+    @Test
+    void readOnlyTransaction_readsTheReplica() {
+        assertEquals("replica", readOnlyTransaction.execute(status -> node()));
+        assertEquals(1, reads("replica-0"));
+    }
+
+    @Test
+    void writeTransactionAndNoTransaction_useThePrimary() {
+        assertEquals("primary", writeTransaction.execute(status -> node()));
+        assertEquals("primary", node());
+        assertEquals(0, reads("replica-0"));
+    }
+
+    @Test
+    void readOnlyCallInsideWriteTransaction_staysOnThePrimary() {
+        String node = writeTransaction.execute(status -> {
+            jdbc.update("insert into node values ('written')");
+            return readOnlyTransaction.execute(inner -> jdbc.queryForObject("select count(*) from node", Integer.class) + "");
+        });
+
+        assertEquals("2", node);
+    }
+
+    @Test
+    void onPrimary_keepsReadOnlyTransactionOnThePrimary() {
+        assertEquals("primary", ReadRouting.onPrimary(() -> readOnlyTransaction.execute(status -> node())));
+        assertEquals(1, reads("primary"));
+        assertFalse(ReadRouting.isPrimaryRequired());
+    }
+
+    @Test
+    void replicaDown_readsFallBackToThePrimary() {
+        replica.close();
+
+        assertEquals("primary", readOnlyTransaction.execute(status -> node()));
+        assertEquals(1, meterRegistry.get(ReadReplicas.FAILURES_METRIC).tag("pool", "replica-0").functionCounter().count());
+        assertEquals(1, reads("primary"));
+    }
+
+    @Test
+    void unwrap_reachesThePrimaryPool() throws Exception {
+        assertSame(primary, jdbc.getDataSource().unwrap(HikariDataSource.class));
+    }
+}
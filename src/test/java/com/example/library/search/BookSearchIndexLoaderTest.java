@@ -0,0 +1,38 @@
+package com.example.library.search;
+
+import com.example.library.dto.BookSearchResponse;
+import com.example.library.entity.Book;
+import com.example.library.repository.BookRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({BookSearchIndex.class, BookSearchIndexLoader.class})
+class BookSearchIndexLoaderTest {
+
+    @Autowired
+    private BookSearchIndex index;
+
+    @Autowired
+    private BookSearchIndexLoader loader;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Test
+    void afterSingletonsInstantiated_indexesEveryBook() {
+        Book book = bookRepository.save(new Book("ISBN-1", "Effective Java", "Joshua Bloch"));
+        bookRepository.flush();
+
+        loader.afterSingletonsInstantiated();
+
+        assertEquals(List.of(book.getId()),
+                index.search("effective", 0, 10).items().stream().map(BookSearchResponse::id).toList());
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.library.search;
+
+import com.example.library.dto.BookSearchResponse;
+import com.example.library.dto.ResultPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.add(1L, "978-0-13-468599-1", "Effective Java", "Joshua Bloch", true);
+        index.add(2L, "978-1-61729-545-4", "Spring in Action", "Craig Walls", true);
+        index.add(3L, "978-1-61729-545-4", "Spring in Action", "Craig Walls", false);
+        index.add(4L, "978-1-49207-800-5", "Java Spring Recipes", "Someone Else", true);
+    }
+
+    private List<Long> ids(ResultPage<BookSearchResponse> page) {
+        return page.items().stream().map(BookSearchResponse::id).toList();
+    }
+
+    @Test
+    void search_requiresEveryToken() {
+        assertEquals(List.of(4L), ids(index.search("java spring", 0, 10)));
+    }
+
+    @Test
+    void search_matchesPrefixes_andRanksExactAboveTitleAboveAuthor() {
+        assertEquals(List.of(2L, 3L, 4L), ids(index.search("spr", 0, 10)));
+        assertEquals(List.of(1L, 4L), ids(index.search("java", 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("bloch", 0, 10)));
+    }
+
+    @Test
+    void search_expandsOnlyTheLastTokenAsPrefix() {
+        assertEquals(List.of(4L), ids(index.search("java spr", 0, 10)));
+        assertEquals(0, index.search("jav spring", 0, 10).total());
+    }
+
+    @Test
+    void search_countsEveryTermAPrefixCovers() {
+        BookSearchIndex wide = new BookSearchIndex();
+        for (long id = 1; id <= 200; id++) {
+            // 200 distinct terms under "spell"; every 50th book is also "zeta".
+            wide.add(id, "ISBN-" + id, (id % 50 == 0 ? "Zeta " : "Alpha ") + "Spell" + (1000 + id), "Author", true);
+        }
+
+        ResultPage<BookSearchResponse> all = wide.search("spe", 0, 3);
+        assertEquals(200, all.total());
+        assertEquals(List.of(1L, 2L, 3L), ids(all));
+        // A few candidates against many terms: checked against each candidate's own terms.
+        ResultPage<BookSearchResponse> narrowed = wide.search("zeta spe", 0, 3);
+        assertEquals(4, narrowed.total());
+        assertEquals(List.of(50L, 100L, 150L), ids(narrowed));
+        assertEquals(List.of(200L), ids(wide.search("zeta spell1200", 0, 10)));
+    }
+
+    @Test
+    void search_matchesIsbnWithOrWithoutHyphens() {
+        assertEquals(List.of(1L), ids(index.search("9780134685991", 0, 10)));
+        assertEquals(List.of(2L, 3L), ids(index.search("978-1-61729-545-4", 0, 10)));
+    }
+
+    @Test
+    void search_paginatesAndReportsTotal() {
+        ResultPage<BookSearchResponse> second = index.search("spring", 1, 2);
+
+        assertEquals(3, second.total());
+        assertEquals(List.of(4L), ids(second));
+        assertTrue(index.search("spring", 5, 2).items().isEmpty());
+    }
+
+    @Test
+    void setAvailable_isReflectedInResults() {
+        index.setAvailable(3L, true);
+
+        assertTrue(index.search("walls", 0, 10).items().stream().allMatch(BookSearchResponse::available));
+    }
+
+    @Test
+    void search_blankOrUnknownQuery_returnsNothing() {
+        assertEquals(0, index.search("  ", 0, 10).total());
+        assertEquals(0, index.search("kotlin", 0, 10).total());
+    }
+}
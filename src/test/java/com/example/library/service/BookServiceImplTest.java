@@ -1,18 +1,30 @@
 package com.example.library.service;
 
+import com.example.library.availability.AvailabilityIndex;
+import com.example.library.cache.IsbnTitleCache;
+import com.example.library.cache.ViewVersions;
 import com.example.library.dto.BookResponse;
 import com.example.library.dto.BookWithBorrowerResponse;
+import com.example.library.dto.BookWithBorrowerRow;
+import com.example.library.dto.CursorPage;
+import com.example.library.dto.IsbnTitleAuthor;
 import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.event.BookRegisteredEvent;
 import com.example.library.exception.DuplicateIsbnException;
 import com.example.library.mapper.Mapper;
 import com.example.library.repository.BookRepository;
 import com.example.library.repository.BorrowerRepository;
+import com.example.library.search.BookSearchIndex;
 import com.example.library.service.impl.BookServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +34,21 @@ class BookServiceImplTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private IsbnTitleCache isbnTitleCache;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private AvailabilityIndex availabilityIndex;
+
+    @Mock
+    private ViewVersions viewVersions;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private BookServiceImpl bookService;
 
@@ -39,7 +66,7 @@ class BookServiceImplTest {
 
     @Test
     void create_success() {
-        when(bookRepository.findByIsbn("12345")).thenReturn(List.of());
+        when(isbnTitleCache.find("12345")).thenReturn(Optional.empty());
         when(bookRepository.save(book)).thenReturn(book);
 
         try (MockedStatic<Mapper> mocked = mockStatic(Mapper.class)) {
@@ -47,27 +74,97 @@ class BookServiceImplTest {
             BookResponse response = bookService.create(book);
             assertEquals("Title", response.title());
         }
+        verify(isbnTitleCache).register(new IsbnTitleAuthor("12345", "Title", "Author"));
+        verify(eventPublisher).publishEvent(new BookRegisteredEvent(1L, "12345", "Title", "Author"));
+        verify(viewVersions).catalogChanged();
     }
 
     @Test
     void create_duplicateIsbnMismatch() {
-        Book otherBook = new Book();
-        otherBook.setIsbn("12345");
-        otherBook.setTitle("Different");
-        otherBook.setAuthor("Other Author");
-        when(bookRepository.findByIsbn("12345")).thenReturn(List.of(otherBook));
+        when(isbnTitleCache.find("12345")).thenReturn(Optional.of(new IsbnTitleAuthor("12345", "Different", "Other Author")));
 
         assertThrows(DuplicateIsbnException.class, () -> bookService.create(book));
+        verify(bookRepository, never()).save(any());
+        verifyNoInteractions(eventPublisher, viewVersions);
+    }
+
+    @Test
+    void create_sameIsbnSameTitle_addsCopy() {
+        when(isbnTitleCache.find("12345")).thenReturn(Optional.of(new IsbnTitleAuthor("12345", "Title", "Author")));
+        when(bookRepository.save(book)).thenReturn(book);
+
+        BookResponse response = bookService.create(book);
+
+        assertEquals(1L, response.id());
+        verify(bookRepository, never()).findByIsbn(any());
     }
 
     @Test
     void getAllBooks_success() {
-        when(bookRepository.findAll()).thenReturn(List.of(book));
-        try (MockedStatic<Mapper> mocked = mockStatic(Mapper.class)) {
-            mocked.when(() -> Mapper.toBookWithBorrowerResponse(book))
-                    .thenReturn(new BookWithBorrowerResponse(1L, "12345", "Title", "Author", null));
-            List<BookWithBorrowerResponse> result = bookService.getAllBooks();
-            assertEquals(1, result.size());
-        }
+        when(bookRepository.findAllRowsWithBorrower()).thenReturn(List.of(
+                new BookWithBorrowerRow(1L, "12345", "Title", "Author", 7L, "John", "john@x.com")));
+
+        List<BookWithBorrowerResponse> result = bookService.getAllBooks();
+
+        assertEquals(1, result.size());
+        assertEquals("john@x.com", result.get(0).borrower().email());
+    }
+
+    @Test
+    void getBooksPage_returnsNextCursor_whenMoreRowsExist() {
+        when(bookRepository.findRowPageWithBorrower(0L, PageRequest.of(0, 2))).thenReturn(List.of(
+                new BookWithBorrowerRow(1L, "12345", "Title", "Author", null, null, null),
+                new BookWithBorrowerRow(2L, "12345", "Title", "Author", null, null, null)));
+
+        CursorPage<BookWithBorrowerResponse> page = bookService.getBooksPage(null, 1);
+
+        assertEquals(1, page.items().size());
+        assertEquals(1L, page.nextCursor());
+    }
+
+    @Test
+    void getBooksPage_lastPage_hasNoCursor() {
+        when(bookRepository.findRowPageWithBorrower(1L, PageRequest.of(0, 11))).thenReturn(List.of(
+                new BookWithBorrowerRow(2L, "12345", "Title", "Author", null, null, null)));
+
+        CursorPage<BookWithBorrowerResponse> page = bookService.getBooksPage(1L, 10);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void search_clampsPagingAndDelegatesToIndex() {
+        bookService.search("spring", -1, 10_000);
+
+        verify(bookSearchIndex).search("spring", 0, 500);
+    }
+
+    @Test
+    void getAvailableBooks_loadsIndexedPageById_andReturnsNextCursor() {
+        Book third = new Book();
+        third.setId(3L);
+        third.setIsbn("12345");
+        third.setTitle("Title");
+        third.setAuthor("Author");
+        when(availabilityIndex.availableIds("12345", 0L, 3)).thenReturn(List.of(1L, 3L, 7L));
+        when(bookRepository.findAllById(List.of(1L, 3L))).thenReturn(List.of(third, book));
+
+        CursorPage<BookResponse> page = bookService.getAvailableBooks("12345", null, 2);
+
+        assertEquals(List.of(1L, 3L), page.items().stream().map(BookResponse::id).toList());
+        assertEquals(3L, page.nextCursor());
+    }
+
+    @Test
+    void getAvailableBooks_skipsCopiesBorrowedSinceIndexed() {
+        book.setBorrower(new Borrower());
+        when(availabilityIndex.availableIds(null, 0L, 51)).thenReturn(List.of(1L));
+        when(bookRepository.findAllById(List.of(1L))).thenReturn(List.of(book));
+
+        CursorPage<BookResponse> page = bookService.getAvailableBooks(null, null, null);
+
+        assertTrue(page.items().isEmpty());
+        assertNull(page.nextCursor());
     }
 }
@@ -1,22 +1,40 @@
 package com.example.library.service;
 
+import com.example.library.cache.BorrowerViewCache;
+import com.example.library.cache.ViewVersions;
+import com.example.library.concurrency.StripedLoanExecutor;
+import com.example.library.dto.BatchLoanItemResponse;
+import com.example.library.dto.BatchLoanResponse;
+import com.example.library.dto.BookLoanState;
 import com.example.library.dto.BookResponse;
+import com.example.library.dto.BookWithBorrowerRow;
+import com.example.library.dto.BorrowerBookRow;
 import com.example.library.dto.BorrowerResponse;
+import com.example.library.dto.BorrowerSummaryResponse;
 import com.example.library.dto.BorrowerWithBooksResponse;
+import com.example.library.dto.CursorPage;
 import com.example.library.entity.Book;
 import com.example.library.entity.Borrower;
+import com.example.library.event.BookBorrowedEvent;
+import com.example.library.event.BookReturnedEvent;
 import com.example.library.exception.*;
 import com.example.library.mapper.Mapper;
+import com.example.library.registration.BorrowerEmailFilter;
 import com.example.library.repository.BookRepository;
 import com.example.library.repository.BorrowerRepository;
 import com.example.library.service.impl.BorrowerServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,9 +45,19 @@ class BorrowerServiceImplTest {
     private BorrowerRepository borrowerRepository;
     @Mock
     private BookRepository bookRepository;
+    @Mock
+    private StripedLoanExecutor loanExecutor;
+    @Mock
+    private BorrowerViewCache borrowerViewCache;
+    @Mock
+    private ViewVersions viewVersions;
+    @Mock
+    private BorrowerEmailFilter emailFilter;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
-    @InjectMocks
     private BorrowerServiceImpl borrowerService;
+    private BorrowerServiceImpl atomicBorrowerService;
 
     private Borrower borrower;
     private Book book;
@@ -37,9 +65,16 @@ class BorrowerServiceImplTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(loanExecutor.execute(anyLong(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(loanExecutor.executeAll(any(), any())).thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(1).get());
+        when(borrowerViewCache.get(anyLong(), any())).thenAnswer(invocation ->
+                invocation.<Function<Long, ?>>getArgument(1).apply(invocation.getArgument(0)));
+        borrowerService = new BorrowerServiceImpl(borrowerRepository, bookRepository, loanExecutor, borrowerViewCache, viewVersions, emailFilter, eventPublisher, false);
+        atomicBorrowerService = new BorrowerServiceImpl(borrowerRepository, bookRepository, loanExecutor, borrowerViewCache, viewVersions, emailFilter, eventPublisher, true);
         borrower = new Borrower();
         borrower.setId(1L);
         borrower.setName("John");
+        borrower.setEmail("john@example.com");
 
         book = new Book();
         book.setId(1L);
@@ -60,44 +95,159 @@ class BorrowerServiceImplTest {
 
             assertEquals("John", response.name());
         }
+        verify(borrowerRepository, never()).existsByEmail(any());
+        verify(emailFilter).add("john@example.com");
+    }
+
+    @Test
+    void create_emailSeenByFilter_checksDatabase() {
+        when(emailFilter.mightContain("john@example.com")).thenReturn(true);
+        when(borrowerRepository.existsByEmail("john@example.com")).thenReturn(true);
+
+        assertThrows(DuplicateBorrowerException.class, () -> borrowerService.create(borrower));
+        verify(borrowerRepository, never()).save(any());
+    }
+
+    @Test
+    void create_filterFalsePositive_stillSaves() {
+        when(emailFilter.mightContain("john@example.com")).thenReturn(true);
+        when(borrowerRepository.save(borrower)).thenReturn(borrower);
+
+        assertEquals(1L, borrowerService.create(borrower).id());
+        verify(borrowerRepository).existsByEmail("john@example.com");
+    }
+
+    @Test
+    void create_lostRaceOnUniqueConstraint_isDuplicate() {
+        when(borrowerRepository.save(borrower)).thenThrow(new DataIntegrityViolationException("unique"));
+        when(borrowerRepository.existsByEmail("john@example.com")).thenReturn(true);
+
+        assertThrows(DuplicateBorrowerException.class, () -> borrowerService.create(borrower));
+        verify(emailFilter, never()).add(any());
+        verifyNoInteractions(viewVersions);
+    }
+
+    @Test
+    void create_otherIntegrityViolation_isRethrown() {
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("not null");
+        when(borrowerRepository.save(borrower)).thenThrow(violation);
+
+        assertSame(violation, assertThrows(DataIntegrityViolationException.class, () -> borrowerService.create(borrower)));
     }
 
 
     @Test
     void findById_success() {
-        when(borrowerRepository.findById(1L)).thenReturn(Optional.of(borrower));
-        try (MockedStatic<Mapper> mocked = mockStatic(Mapper.class)) {
-            BorrowerWithBooksResponse mockResponse = new BorrowerWithBooksResponse(1L, "John", "John@test.com",null);
-            mocked.when(() -> Mapper.toBorrowerWithBooksResponse(borrower)).thenReturn(mockResponse);
+        when(borrowerRepository.findRowsWithBooksById(1L)).thenReturn(List.of(
+                new BorrowerBookRow(1L, "John", "John@test.com", 10L, "I1", "T1", "A1"),
+                new BorrowerBookRow(1L, "John", "John@test.com", 11L, "I2", "T2", "A2")));
 
-            BorrowerWithBooksResponse response = borrowerService.findById(1L);
+        BorrowerWithBooksResponse response = borrowerService.findById(1L);
 
-            assertEquals("John", response.name());
-        }
+        assertEquals("John", response.name());
+        assertEquals(List.of(10L, 11L), response.books().stream().map(BookResponse::id).toList());
     }
 
     @Test
     void findById_notFound() {
-        when(borrowerRepository.findById(1L)).thenReturn(Optional.empty());
+        when(borrowerRepository.findRowsWithBooksById(1L)).thenReturn(List.of());
         assertThrows(ResourceNotFoundException.class, () -> borrowerService.findById(1L));
     }
 
     @Test
     void getAllBorrowers_success() {
-        when(borrowerRepository.findAll()).thenReturn(List.of(borrower));
-        try (MockedStatic<Mapper> mocked = mockStatic(Mapper.class)) {
-            mocked.when(() -> Mapper.toBorrowerWithBooksResponse(borrower))
-                    .thenReturn(new BorrowerWithBooksResponse(1L, "John", "John@test.com",null));
-            List<BorrowerWithBooksResponse> result = borrowerService.getAllBorrowers();
-            assertEquals(1, result.size());
-        }
+        when(borrowerRepository.findAllRowsWithBooks()).thenReturn(List.of(
+                new BorrowerBookRow(1L, "John", "John@test.com", 10L, "I1", "T1", "A1"),
+                new BorrowerBookRow(2L, "Jane", "Jane@test.com", null, null, null, null)));
+
+        List<BorrowerWithBooksResponse> result = borrowerService.getAllBorrowers();
+
+        assertEquals(2, result.size());
+        assertEquals(1, result.get(0).books().size());
+        assertTrue(result.get(1).books().isEmpty());
+    }
+
+    @Test
+    void findById_withMaxBooks_listsFirstBooksAndTotal() {
+        when(borrowerRepository.findSummaryById(1L)).thenReturn(Optional.of(new BorrowerSummaryResponse(1L, "John", "john@example.com", 40)));
+        when(bookRepository.findPageByBorrowerId(1L, 0L, PageRequest.of(0, 2))).thenReturn(List.of(
+                new BookResponse(3L, "I3", "T3", "A3"), new BookResponse(7L, "I7", "T7", "A7")));
+
+        BorrowerWithBooksResponse result = borrowerService.findById(1L, 2);
+
+        assertEquals(2, result.books().size());
+        assertEquals(40, result.totalBooks());
+        verifyNoInteractions(borrowerViewCache);
+    }
+
+    @Test
+    void findById_withZeroBooks_onlyReadsBorrower() {
+        when(borrowerRepository.findSummaryById(1L)).thenReturn(Optional.of(new BorrowerSummaryResponse(1L, "John", "john@example.com", 40)));
+
+        BorrowerWithBooksResponse result = borrowerService.findById(1L, 0);
+
+        assertTrue(result.books().isEmpty());
+        assertEquals(40, result.totalBooks());
+        verify(bookRepository, never()).findPageByBorrowerId(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void findById_withMaxBooks_notFound() {
+        when(borrowerRepository.findSummaryById(1L)).thenReturn(Optional.empty());
+        assertThrows(ResourceNotFoundException.class, () -> borrowerService.findById(1L, 5));
+    }
+
+    @Test
+    void getBorrowerBooks_fetchesOneExtraRowForNextCursor() {
+        when(bookRepository.findPageByBorrowerId(1L, 3L, PageRequest.of(0, 3))).thenReturn(List.of(
+                new BookResponse(4L, "I4", "T4", "A4"),
+                new BookResponse(6L, "I6", "T6", "A6"),
+                new BookResponse(9L, "I9", "T9", "A9")));
+
+        CursorPage<BookResponse> page = borrowerService.getBorrowerBooks(1L, 3L, 2);
+
+        assertEquals(2, page.items().size());
+        assertEquals(6L, page.nextCursor());
+        verify(borrowerRepository, never()).existsById(any());
+    }
+
+    @Test
+    void getBorrowerBooks_emptyPage_unknownBorrowerIsNotFound() {
+        when(bookRepository.findPageByBorrowerId(eq(1L), eq(0L), any())).thenReturn(List.of());
+        when(borrowerRepository.existsById(1L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> borrowerService.getBorrowerBooks(1L, null, null));
+    }
+
+    @Test
+    void getBorrowerSummaries_fetchesOneExtraRowForNextCursor() {
+        when(borrowerRepository.findSummaryPage(0L, PageRequest.of(0, 3))).thenReturn(List.of(
+                new BorrowerSummaryResponse(1L, "John", "john@example.com", 2),
+                new BorrowerSummaryResponse(2L, "Jane", "jane@example.com", 0),
+                new BorrowerSummaryResponse(3L, "Jim", "jim@example.com", 1)));
+
+        CursorPage<BorrowerSummaryResponse> page = borrowerService.getBorrowerSummaries(null, 2);
+
+        assertEquals(2, page.items().size());
+        assertEquals(2L, page.nextCursor());
+    }
+
+    @Test
+    void getBorrowerSummaries_lastPage_clampsLimit() {
+        when(borrowerRepository.findSummaryPage(5L, PageRequest.of(0, 501))).thenReturn(List.of(
+                new BorrowerSummaryResponse(6L, "John", "john@example.com", 2)));
+
+        CursorPage<BorrowerSummaryResponse> page = borrowerService.getBorrowerSummaries(5L, 10_000);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
     }
 
     @Test
     void borrow_success() {
         when(borrowerRepository.findById(1L)).thenReturn(Optional.of(borrower));
         when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
-        when(bookRepository.save(any(Book.class))).thenReturn(book);
+        when(bookRepository.saveAndFlush(any(Book.class))).thenReturn(book);
 
         try (MockedStatic<Mapper> mocked = mockStatic(Mapper.class)) {
             mocked.when(() -> Mapper.toBookResponse(book)).thenReturn(new BookResponse(1L, "12345", "Test Book", "Author"));
@@ -107,6 +257,7 @@ class BorrowerServiceImplTest {
             BorrowerResponse response = borrowerService.borrow(1L, 1L);
             assertEquals("John", response.name());
             assertEquals("Book Borrowed Successfully",response.message());
+            verify(borrowerRepository).adjustLoanCount(1L, 1);
 
         }
     }
@@ -124,9 +275,10 @@ class BorrowerServiceImplTest {
     void borrow_conflict() {
         when(borrowerRepository.findById(1L)).thenReturn(Optional.of(borrower));
         when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
-        when(bookRepository.save(any(Book.class))).thenThrow(new OptimisticLockingFailureException("err"));
+        when(bookRepository.saveAndFlush(any(Book.class))).thenThrow(new OptimisticLockingFailureException("err"));
 
         assertThrows(ConflictException.class, () -> borrowerService.borrow(1L, 1L));
+        verify(borrowerRepository, never()).adjustLoanCount(anyLong(), anyInt());
     }
 
     @Test
@@ -134,7 +286,7 @@ class BorrowerServiceImplTest {
         book.setBorrower(borrower);
         when(borrowerRepository.findById(1L)).thenReturn(Optional.of(borrower));
         when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
-        when(bookRepository.save(any(Book.class))).thenReturn(book);
+        when(bookRepository.saveAndFlush(any(Book.class))).thenReturn(book);
 
         try (MockedStatic<Mapper> mocked = mockStatic(Mapper.class)) {
             mocked.when(() -> Mapper.toBookResponse(book)).thenReturn(new BookResponse(1L, "12345", "Test Book", "Author"));
@@ -144,6 +296,7 @@ class BorrowerServiceImplTest {
             BorrowerResponse response = borrowerService.returnBook(1L, 1L);
             assertEquals("John", response.name());
             assertEquals("Book Returned Successfully",response.message());
+            verify(borrowerRepository).adjustLoanCount(1L, -1);
 
         }
     }
@@ -155,4 +308,180 @@ class BorrowerServiceImplTest {
 
         assertThrows(BookNotBorrowedException.class, () -> borrowerService.returnBook(1L, 1L));
     }
+
+    @Test
+    void atomicBorrow_success() {
+        when(bookRepository.claim(1L, 1L)).thenReturn(1);
+        when(bookRepository.findLoanRow(1L, 1L)).thenReturn(Optional.of(loanRow()));
+
+        BorrowerResponse response = atomicBorrowerService.borrow(1L, 1L);
+
+        assertEquals("John", response.name());
+        assertEquals("Book Borrowed Successfully", response.message());
+        assertEquals(1L, response.bookResponse().id());
+        verify(bookRepository, never()).saveAndFlush(any());
+        verify(bookRepository, never()).findById(any());
+        verify(borrowerRepository, never()).findById(any());
+        verify(borrowerRepository).adjustLoanCount(1L, 1);
+        verify(eventPublisher).publishEvent(new BookBorrowedEvent(1L, 1L));
+        InOrder order = inOrder(borrowerViewCache, viewVersions);
+        order.verify(borrowerViewCache).invalidate(1L);
+        order.verify(viewVersions).borrowerChanged(1L);
+    }
+
+    @Test
+    void atomicBorrow_borrowerNotFound() {
+        when(bookRepository.claim(1L, 1L)).thenReturn(0);
+        when(borrowerRepository.existsById(1L)).thenReturn(false);
+
+        ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class, () -> atomicBorrowerService.borrow(1L, 1L));
+        assertEquals("Borrower not found", ex.getMessage());
+    }
+
+    @Test
+    void atomicBorrow_bookNotFound() {
+        when(bookRepository.claim(1L, 1L)).thenReturn(0);
+        when(borrowerRepository.existsById(1L)).thenReturn(true);
+        when(bookRepository.existsById(1L)).thenReturn(false);
+
+        ResourceNotFoundException ex = assertThrows(ResourceNotFoundException.class, () -> atomicBorrowerService.borrow(1L, 1L));
+        assertEquals("Book not found", ex.getMessage());
+    }
+
+    @Test
+    void atomicBorrow_bookAlreadyBorrowed() {
+        when(bookRepository.claim(1L, 1L)).thenReturn(0);
+        when(borrowerRepository.existsById(1L)).thenReturn(true);
+        when(bookRepository.existsById(1L)).thenReturn(true);
+
+        assertThrows(BookAlreadyBorrowedException.class, () -> atomicBorrowerService.borrow(1L, 1L));
+        verify(borrowerRepository, never()).adjustLoanCount(anyLong(), anyInt());
+        verifyNoInteractions(eventPublisher);
+        verify(borrowerViewCache, never()).invalidate(any());
+        verifyNoInteractions(viewVersions);
+    }
+
+    @Test
+    void atomicReturn_success() {
+        when(bookRepository.release(1L, 1L)).thenReturn(1);
+        when(bookRepository.findLoanRow(1L, 1L)).thenReturn(Optional.of(loanRow()));
+
+        BorrowerResponse response = atomicBorrowerService.returnBook(1L, 1L);
+
+        assertEquals("Book Returned Successfully", response.message());
+        assertEquals(1L, response.bookResponse().id());
+        verify(borrowerRepository).adjustLoanCount(1L, -1);
+        verify(eventPublisher).publishEvent(new BookReturnedEvent(1L, 1L));
+        InOrder order = inOrder(borrowerViewCache, viewVersions);
+        order.verify(borrowerViewCache).invalidate(1L);
+        order.verify(viewVersions).borrowerChanged(1L);
+    }
+
+    @Test
+    void atomicReturn_notBorrowed() {
+        when(bookRepository.release(1L, 1L)).thenReturn(0);
+        when(borrowerRepository.existsById(1L)).thenReturn(true);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+
+        assertThrows(BookNotBorrowedException.class, () -> atomicBorrowerService.returnBook(1L, 1L));
+        verify(borrowerRepository, never()).adjustLoanCount(anyLong(), anyInt());
+    }
+
+    @Test
+    void atomicReturn_borrowedByAnotherUser() {
+        Borrower other = new Borrower();
+        other.setId(2L);
+        book.setBorrower(other);
+        when(bookRepository.release(1L, 1L)).thenReturn(0);
+        when(borrowerRepository.existsById(1L)).thenReturn(true);
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+
+        assertThrows(BookAlreadyReturnedException.class, () -> atomicBorrowerService.returnBook(1L, 1L));
+    }
+
+    private BookWithBorrowerRow loanRow() {
+        return new BookWithBorrowerRow(book.getId(), book.getIsbn(), book.getTitle(), book.getAuthor(),
+                borrower.getId(), borrower.getName(), borrower.getEmail());
+    }
+
+    private static List<BatchLoanItemResponse.Status> statuses(BatchLoanResponse result) {
+        return result.items().stream().map(BatchLoanItemResponse::status).toList();
+    }
+
+    @Test
+    void borrowAll_claimsFreeBooksInOneStatement_andRejectsTheRest() {
+        when(borrowerRepository.findById(1L)).thenReturn(Optional.of(borrower));
+        when(bookRepository.lockLoanStates(any())).thenReturn(List.of(
+                new BookLoanState(10L, null), new BookLoanState(11L, 2L), new BookLoanState(12L, null)));
+        when(bookRepository.claimAll(List.of(10L, 12L), 1L)).thenReturn(2);
+
+        BatchLoanResponse result = borrowerService.borrowAll(1L, List.of(10L, 11L, 12L, 13L, 10L), false);
+
+        assertEquals(2, result.applied());
+        assertEquals(3, result.rejected());
+        assertEquals(List.of(BatchLoanItemResponse.Status.BORROWED, BatchLoanItemResponse.Status.REJECTED,
+                BatchLoanItemResponse.Status.BORROWED, BatchLoanItemResponse.Status.REJECTED,
+                BatchLoanItemResponse.Status.REJECTED), statuses(result));
+        assertEquals("BookAlreadyBorrowedException", result.items().get(1).error());
+        assertEquals("ResourceNotFoundException", result.items().get(3).error());
+        assertEquals("BookAlreadyBorrowedException", result.items().get(4).error()); // repeated id
+        verify(borrowerRepository, times(1)).findById(1L);
+        verify(borrowerRepository).adjustLoanCount(1L, 2);
+        verify(eventPublisher).publishEvent(new BookBorrowedEvent(10L, 1L));
+        verify(eventPublisher).publishEvent(new BookBorrowedEvent(12L, 1L));
+        InOrder order = inOrder(borrowerViewCache, viewVersions);
+        order.verify(borrowerViewCache).invalidate(1L);
+        order.verify(viewVersions).borrowerChanged(1L);
+    }
+
+    @Test
+    void borrowAll_allOrNothing_changesNothingWhenAnyBookIsRejected() {
+        when(borrowerRepository.findById(1L)).thenReturn(Optional.of(borrower));
+        when(bookRepository.lockLoanStates(any())).thenReturn(List.of(
+                new BookLoanState(10L, null), new BookLoanState(11L, 2L)));
+
+        BatchLoanResponse result = borrowerService.borrowAll(1L, List.of(10L, 11L), true);
+
+        assertEquals(0, result.applied());
+        assertEquals(List.of(BatchLoanItemResponse.Status.NOT_APPLIED, BatchLoanItemResponse.Status.REJECTED), statuses(result));
+        verify(bookRepository, never()).claimAll(any(), any());
+        verify(borrowerRepository, never()).adjustLoanCount(anyLong(), anyInt());
+        verifyNoInteractions(eventPublisher, borrowerViewCache, viewVersions);
+    }
+
+    @Test
+    void borrowAll_shortUpdateCount_isConflict() {
+        when(borrowerRepository.findById(1L)).thenReturn(Optional.of(borrower));
+        when(bookRepository.lockLoanStates(any())).thenReturn(List.of(new BookLoanState(10L, null), new BookLoanState(12L, null)));
+        when(bookRepository.claimAll(List.of(10L, 12L), 1L)).thenReturn(1);
+
+        assertThrows(ConflictException.class, () -> borrowerService.borrowAll(1L, List.of(10L, 12L), false));
+        verify(borrowerRepository, never()).adjustLoanCount(anyLong(), anyInt());
+    }
+
+    @Test
+    void borrowAll_borrowerNotFound() {
+        when(borrowerRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> borrowerService.borrowAll(1L, List.of(10L), false));
+        verify(bookRepository, never()).lockLoanStates(any());
+    }
+
+    @Test
+    void returnAll_releasesOwnBooks_withSingleBookReasonsForTheRest() {
+        when(borrowerRepository.findById(1L)).thenReturn(Optional.of(borrower));
+        when(bookRepository.lockLoanStates(any())).thenReturn(List.of(
+                new BookLoanState(10L, 1L), new BookLoanState(11L, null), new BookLoanState(12L, 2L)));
+        when(bookRepository.releaseAll(List.of(10L), 1L)).thenReturn(1);
+
+        BatchLoanResponse result = borrowerService.returnAll(1L, List.of(10L, 11L, 12L), false);
+
+        assertEquals(1, result.applied());
+        assertEquals(BatchLoanItemResponse.Status.RETURNED, result.items().get(0).status());
+        assertEquals("BookNotBorrowedException", result.items().get(1).error());
+        assertEquals("BookAlreadyReturnedException", result.items().get(2).error());
+        verify(borrowerRepository).adjustLoanCount(1L, -1);
+        verify(eventPublisher).publishEvent(new BookReturnedEvent(10L, 1L));
+        verify(viewVersions).borrowerChanged(1L);
+    }
 }
@@ -0,0 +1,89 @@
+package com.example.library.service;
+
+import com.example.library.cache.ViewVersions;
+import com.example.library.dto.BulkBookItemResponse;
+import com.example.library.dto.BulkBookResponse;
+import com.example.library.dto.IsbnTitleAuthor;
+import com.example.library.entity.Book;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.impl.BulkBookServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class BulkBookServiceImplTest {
+
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private Session session;
+    @Mock
+    private ViewVersions viewVersions;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private BulkBookServiceImpl bulkBookService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        AtomicLong ids = new AtomicLong();
+        doAnswer(invocation -> {
+            invocation.<Book>getArgument(0).setId(ids.incrementAndGet());
+            return null;
+        }).when(entityManager).persist(any(Book.class));
+
+        bulkBookService = new BulkBookServiceImpl(bookRepository, entityManager, viewVersions, eventPublisher, 2);
+    }
+
+    @Test
+    void createAll_rejectsIsbnMismatchAgainstDatabaseAndBatch() {
+        when(bookRepository.findTitleAuthorByIsbnIn(anyCollection()))
+                .thenReturn(List.of(new IsbnTitleAuthor("I1", "T1", "A1")));
+
+        BulkBookResponse response = bulkBookService.createAll(List.of(
+                new Book("I1", "T1", "A1"),
+                new Book("I1", "Wrong", "A1"),
+                new Book("I2", "T2", "A2"),
+                new Book("I2", "T2", "Other")));
+
+        assertEquals(2, response.created());
+        assertEquals(2, response.rejected());
+        assertEquals(BulkBookItemResponse.Status.CREATED, response.items().get(0).status());
+        assertEquals(BulkBookItemResponse.Status.REJECTED, response.items().get(1).status());
+        assertEquals(2L, response.items().get(2).book().id());
+        assertEquals(BulkBookItemResponse.Status.REJECTED, response.items().get(3).status());
+        verify(bookRepository, times(1)).findTitleAuthorByIsbnIn(anyCollection());
+        verify(eventPublisher, times(2)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void createAll_flushesEveryChunk() {
+        when(bookRepository.findTitleAuthorByIsbnIn(anyCollection())).thenReturn(List.of());
+
+        bulkBookService.createAll(List.of(
+                new Book("I1", "T1", "A1"),
+                new Book("I2", "T2", "A2"),
+                new Book("I3", "T3", "A3")));
+
+        verify(session).setJdbcBatchSize(2);
+        verify(entityManager, times(3)).persist(any(Book.class));
+        // one full chunk of two, then the remainder
+        verify(entityManager, times(2)).flush();
+    }
+}
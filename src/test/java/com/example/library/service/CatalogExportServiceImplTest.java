@@ -0,0 +1,69 @@
+package com.example.library.service;
+
+import com.example.library.entity.Book;
+import com.example.library.entity.Borrower;
+import com.example.library.repository.BookRepository;
+import com.example.library.service.impl.CatalogExportServiceImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CatalogExportServiceImplTest {
+
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private EntityManager entityManager;
+
+    private CatalogExportServiceImpl exportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        exportService = new CatalogExportServiceImpl(bookRepository, entityManager, new ObjectMapper(), 2);
+    }
+
+    private Book book(long id, Borrower borrower) {
+        Book book = new Book("ISBN-" + id, "Title " + id, "Author " + id);
+        book.setId(id);
+        book.setBorrower(borrower);
+        return book;
+    }
+
+    @Test
+    void exportBooks_writesOneJsonObjectPerLine() throws Exception {
+        Borrower borrower = new Borrower("John", "john@x.com");
+        borrower.setId(10L);
+        when(bookRepository.streamAllWithBorrower()).thenReturn(Stream.of(book(1, borrower), book(2, null), book(3, null)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = exportService.exportBooks(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, exported);
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[0].contains("\"borrower\":{\"id\":10,"));
+        assertFalse(lines[1].contains("borrower"));
+    }
+
+    @Test
+    void exportBooks_clearsPersistenceContextPeriodically() throws Exception {
+        when(bookRepository.streamAllWithBorrower()).thenReturn(Stream.of(book(1, null), book(2, null), book(3, null), book(4, null)));
+
+        exportService.exportBooks(new ByteArrayOutputStream());
+
+        // after the first row, then every second row
+        verify(entityManager, times(3)).clear();
+    }
+}